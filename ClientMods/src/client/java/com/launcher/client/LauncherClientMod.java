@@ -0,0 +1,45 @@
+package com.launcher.client;
+
+import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
+import net.fabricmc.loader.api.FabricLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class LauncherClientMod implements ClientModInitializer {
+    public static final String MOD_ID = "launcherclient";
+    public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
+    
+    @Override
+    public void onInitializeClient() {
+        LOGGER.info("Launcher Client Mod инициализирован!");
+        
+        PayloadTypeRegistry.playC2S().register(LauncherHandshakePayload.ID, LauncherHandshakePayload.CODEC);
+        
+        // Отправляем handshake сразу при входе на сервер
+        ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> {
+            // Сервер без Launcher API не объявляет канал - ему ничего не шлем
+            if (!ClientPlayNetworking.canSend(LauncherHandshakePayload.ID)) {
+                return;
+            }
+            sender.sendPacket(new LauncherHandshakePayload(getLauncherVersion(), getCapabilities()));
+            LOGGER.info("Отправлен пакет handshake серверу - игрок использует наш лаунчер");
+        });
+    }
+    
+    private static String getLauncherVersion() {
+        return FabricLoader.getInstance().getModContainer(MOD_ID)
+                .map(container -> container.getMetadata().getVersion().getFriendlyString())
+                .orElse("unknown");
+    }
+    
+    private static int getCapabilities() {
+        int capabilities = 0;
+        if (FabricLoader.getInstance().isModLoaded("fastjoin")) {
+            capabilities |= LauncherHandshakePayload.CAPABILITY_FAST_JOIN;
+        }
+        return capabilities;
+    }
+}
@@ -0,0 +1,28 @@
+package com.launcher.client;
+
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.codec.PacketCodecs;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.util.Identifier;
+
+/**
+ * Пакет, которым клиент сообщает серверу, что игрок зашел через наш лаунчер.
+ * Формат должен совпадать с com.launcher.api.LauncherHandshakePayload в ServerMods
+ */
+public record LauncherHandshakePayload(String launcherVersion, int capabilities) implements CustomPayload {
+    public static final CustomPayload.Id<LauncherHandshakePayload> ID =
+            new CustomPayload.Id<>(Identifier.of("launcherclient", "handshake"));
+    public static final PacketCodec<RegistryByteBuf, LauncherHandshakePayload> CODEC = PacketCodec.tuple(
+            PacketCodecs.STRING, LauncherHandshakePayload::launcherVersion,
+            PacketCodecs.VAR_INT, LauncherHandshakePayload::capabilities,
+            LauncherHandshakePayload::new);
+
+    // Биты capabilities
+    public static final int CAPABILITY_FAST_JOIN = 1; // установлен мод FastJoin
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+        return ID;
+    }
+}
@@ -2,13 +2,18 @@ package com.angella;
 
 import com.angella.config.AngellaConfig;
 import com.angella.discord.DiscordBot;
+import com.angella.discord.SkinRestorerIntegration;
 import com.angella.events.ChatEventHandler;
 import com.angella.events.PlayerEventHandler;
+import com.angella.http.OutboundHttp;
 import com.angella.llm.AngellaChatService;
 import com.angella.commands.RebootUpdateCommand;
 import com.angella.commands.VerifCommand;
 import com.angella.commands.VerifDeleteCommand;
+import com.angella.scheduler.TickScheduler;
 import com.angella.verification.VerificationManager;
+import com.launcher.shared.AdvancementCounter;
+import com.launcher.shared.SkinTextureCache;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
@@ -46,11 +51,15 @@ public class AngellaMod implements ModInitializer {
         }
         
         // Register event handlers
+        TickScheduler.register();
+        AdvancementCounter.register();
+        SkinTextureCache.register();
         PlayerEventHandler.register();
         ChatEventHandler.register();
         
         // Load verifications
         VerificationManager.load();
+        SkinRestorerIntegration.loadCache();
         
         // Register commands
         RebootUpdateCommand.register();
@@ -80,6 +89,9 @@ public class AngellaMod implements ModInitializer {
             if (discordBot != null) {
                 discordBot.onServerStopped();
             }
+            VerificationManager.close();
+            SkinRestorerIntegration.saveCache();
+            OutboundHttp.logMetrics();
             if (AngellaChatService.getInstance() != null) {
                 AngellaChatService.getInstance().shutdown();
             }
@@ -2,6 +2,7 @@ package com.angella.commands;
 
 import com.angella.AngellaMod;
 import com.angella.discord.DiscordBot;
+import com.angella.scheduler.TickScheduler;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.context.CommandContext;
@@ -13,12 +14,11 @@ import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
 import net.minecraft.network.packet.s2c.play.TitleS2CPacket;
 
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-
 public class RebootUpdateCommand {
-    private static ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private static final int TICKS_PER_SECOND = 20;
+    private static final int REBOOT_DELAY_SECONDS = 5 * 60;
+    // Seconds left before reboot when players get a countdown message
+    private static final int[] COUNTDOWN_SECONDS = {240, 180, 120, 60, 30, 15, 10, 5, 4, 3, 2, 1};
     private static boolean rebootScheduled = false;
     
     public static void register() {
@@ -52,9 +52,9 @@ public class RebootUpdateCommand {
         if (bot != null && bot.isReady()) {
             var technicalChannel = bot.getTechnicalChannel();
             if (technicalChannel != null) {
-                technicalChannel.sendMessageEmbeds(
+                bot.getOutbox().send(technicalChannel,
                     com.angella.discord.RebootEmbedBuilder.createRebootScheduledEmbed(reason, executorName, AngellaMod.getConfig())
-                ).queue();
+                );
             }
         }
         
@@ -79,21 +79,16 @@ public class RebootUpdateCommand {
         source.sendFeedback(() -> Text.literal("✅ Перезагрузка запланирована на 5 минут. Причина: " + reason), true);
         
         // Schedule countdown messages
-        scheduleCountdown(server, reason, 4); // 4 minutes
-        scheduleCountdown(server, reason, 3); // 3 minutes
-        scheduleCountdown(server, reason, 2); // 2 minutes
-        scheduleCountdown(server, reason, 1); // 1 minute
-        scheduleCountdown(server, reason, 30); // 30 seconds
-        scheduleCountdown(server, reason, 15); // 15 seconds
-        scheduleCountdown(server, reason, 10); // 10 seconds
-        scheduleCountdown(server, reason, 5); // 5 seconds
-        scheduleCountdown(server, reason, 4); // 4 seconds
-        scheduleCountdown(server, reason, 3); // 3 seconds
-        scheduleCountdown(server, reason, 2); // 2 seconds
-        scheduleCountdown(server, reason, 1); // 1 second
+        for (int secondsLeft : COUNTDOWN_SECONDS) {
+            TickScheduler.runLater((REBOOT_DELAY_SECONDS - secondsLeft) * TICKS_PER_SECOND, () -> {
+                if (!server.isStopped()) {
+                    sendCountdownMessage(server, reason, secondsLeft);
+                }
+            });
+        }
         
         // Schedule server shutdown
-        scheduler.schedule(() -> {
+        TickScheduler.runLater(REBOOT_DELAY_SECONDS * TICKS_PER_SECOND, () -> {
             server.getPlayerManager().broadcast(
                 Text.literal("🔄 Перезагрузка сервера...").formatted(Formatting.RED, Formatting.BOLD),
                 false
@@ -103,54 +98,45 @@ public class RebootUpdateCommand {
             if (bot != null && bot.isReady()) {
                 var technicalChannel = bot.getTechnicalChannel();
                 if (technicalChannel != null) {
-                    technicalChannel.sendMessageEmbeds(
+                    bot.getOutbox().send(technicalChannel,
                         com.angella.discord.RebootEmbedBuilder.createRebootInProgressEmbed(reason, AngellaMod.getConfig())
-                    ).queue();
+                    );
                 }
             }
             
             // Stop server
             server.stop(false);
-        }, 5, TimeUnit.MINUTES);
+        });
         
         return 1;
     }
     
-    private static void scheduleCountdown(net.minecraft.server.MinecraftServer server, String reason, int minutesOrSeconds) {
-        long delay;
-        String unit;
+    private static void sendCountdownMessage(net.minecraft.server.MinecraftServer server, String reason, int secondsLeft) {
+        boolean minutes = secondsLeft >= 60;
+        int amount = minutes ? secondsLeft / 60 : secondsLeft;
+        String unit = minutes
+                ? (amount == 1 ? "минуту" : (amount < 5 ? "минуты" : "минут"))
+                : (amount == 1 ? "секунду" : (amount < 5 ? "секунды" : "секунд"));
         
-        if (minutesOrSeconds >= 60) {
-            delay = (5 - minutesOrSeconds) * 60L;
-            unit = "минут";
+        String message;
+        if (minutes) {
+            message = "⚠️ Перезагрузка через " + amount + " " + unit + "! Причина: " + reason;
         } else {
-            delay = (5 * 60L) - minutesOrSeconds;
-            unit = minutesOrSeconds == 1 ? "секунду" : (minutesOrSeconds < 5 ? "секунды" : "секунд");
+            message = "⚠️ Перезагрузка через " + amount + " " + unit + "!";
         }
         
-        scheduler.schedule(() -> {
-            if (!server.isStopped()) {
-                String message;
-                if (minutesOrSeconds >= 60) {
-                    message = "⚠️ Перезагрузка через " + minutesOrSeconds + " " + unit + "! Причина: " + reason;
-                } else {
-                    message = "⚠️ Перезагрузка через " + minutesOrSeconds + " " + unit + "!";
-                }
-                
-                Text chatMessage = Text.literal(message).formatted(Formatting.RED, Formatting.BOLD);
-                server.getPlayerManager().broadcast(chatMessage, false);
-                
-                // Update title for last minute
-                if (minutesOrSeconds <= 60) {
-                    Text titleText = Text.literal("⚠️ " + minutesOrSeconds).formatted(Formatting.RED, Formatting.BOLD);
-                    Text subtitleText = Text.literal("Перезагрузка через " + minutesOrSeconds + " " + unit).formatted(Formatting.YELLOW);
-                    
-                    for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
-                        player.networkHandler.sendPacket(new TitleS2CPacket(titleText));
-                        player.networkHandler.sendPacket(new net.minecraft.network.packet.s2c.play.OverlayMessageS2CPacket(subtitleText));
-                    }
-                }
+        Text chatMessage = Text.literal(message).formatted(Formatting.RED, Formatting.BOLD);
+        server.getPlayerManager().broadcast(chatMessage, false);
+        
+        // Update title for last minute
+        if (secondsLeft <= 60) {
+            Text titleText = Text.literal("⚠️ " + amount).formatted(Formatting.RED, Formatting.BOLD);
+            Text subtitleText = Text.literal("Перезагрузка через " + amount + " " + unit).formatted(Formatting.YELLOW);
+            
+            for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
+                player.networkHandler.sendPacket(new TitleS2CPacket(titleText));
+                player.networkHandler.sendPacket(new net.minecraft.network.packet.s2c.play.OverlayMessageS2CPacket(subtitleText));
             }
-        }, delay, TimeUnit.SECONDS);
+        }
     }
 }
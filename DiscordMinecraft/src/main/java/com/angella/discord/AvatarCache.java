@@ -0,0 +1,251 @@
+package com.angella.discord;
+
+import com.angella.AngellaMod;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Avatar URLs found through SkinRestorer or the Mojang API, by player UUID with the name as a second key.
+ *
+ * "Nothing found" is cached too (for negativeTtlMs), so players without a SkinRestorer skin
+ * do not cost a lookup on every event. Entries expire, the least recently used ones are evicted
+ * above maxEntries. The cache is saved to a small binary file and read back at startup,
+ * so a restart does not send every joining player to SkinRestorer and Mojang again.
+ */
+class AvatarCache {
+    private static final int FILE_MAGIC = 0x41564331; // "AVC1"
+
+    /**
+     * Result of a lookup: url is null when nothing was found
+     */
+    static final class Hit {
+        final String url;
+
+        private Hit(String url) {
+            this.url = url;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlMs;
+    private final long negativeTtlMs;
+    // Access-ordered, so the eldest entry is the least recently used one
+    private final LinkedHashMap<UUID, Entry> byUuid = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, UUID> byName = new HashMap<>();
+    private boolean dirty = false;
+    // Periodic saves run in the background, the last one on the server thread at stop
+    private final Object saveLock = new Object();
+
+    AvatarCache(int maxEntries, long ttlMs, long negativeTtlMs) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.negativeTtlMs = negativeTtlMs;
+    }
+
+    /**
+     * The cached result, or null if there is none or it expired
+     */
+    synchronized Hit get(UUID uuid) {
+        Entry entry = byUuid.get(uuid);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            remove(entry);
+            return null;
+        }
+        return new Hit(entry.url);
+    }
+
+    synchronized Hit getByName(String name) {
+        UUID uuid = byName.get(name.toLowerCase(Locale.ROOT));
+        return uuid != null ? get(uuid) : null;
+    }
+
+    /**
+     * Stores a lookup result; url == null records that nothing was found
+     */
+    synchronized void put(UUID uuid, String name, String url) {
+        long ttl = url != null ? ttlMs : negativeTtlMs;
+        store(new Entry(uuid, name, url, System.currentTimeMillis() + ttl));
+        dirty = true;
+    }
+
+    synchronized void remove(UUID uuid) {
+        Entry entry = byUuid.get(uuid);
+        if (entry != null) {
+            remove(entry);
+        }
+    }
+
+    synchronized void removeByName(String name) {
+        UUID uuid = byName.get(name.toLowerCase(Locale.ROOT));
+        if (uuid != null) {
+            remove(uuid);
+        }
+    }
+
+    synchronized void clear() {
+        byUuid.clear();
+        byName.clear();
+        dirty = true;
+    }
+
+    synchronized int size() {
+        return byUuid.size();
+    }
+
+    private void store(Entry entry) {
+        Entry previous = byUuid.put(entry.uuid, entry);
+        if (previous != null && !previous.name.equalsIgnoreCase(entry.name)) {
+            byName.remove(previous.name.toLowerCase(Locale.ROOT), previous.uuid);
+        }
+        byName.put(entry.name.toLowerCase(Locale.ROOT), entry.uuid);
+        if (byUuid.size() > maxEntries) {
+            Iterator<Entry> eldest = byUuid.values().iterator();
+            Entry evicted = eldest.next();
+            eldest.remove();
+            byName.remove(evicted.name.toLowerCase(Locale.ROOT), evicted.uuid);
+        }
+    }
+
+    private void remove(Entry entry) {
+        byUuid.remove(entry.uuid);
+        byName.remove(entry.name.toLowerCase(Locale.ROOT), entry.uuid);
+        dirty = true;
+    }
+
+    /**
+     * Reads the saved entries. Entries already in memory are newer and are kept;
+     * expired ones are skipped. A missing or damaged file just leaves the cache as it is
+     */
+    void load(Path file) {
+        List<Entry> loaded = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                AngellaMod.LOGGER.warn("Ignoring avatar cache {}: unknown format", file);
+                return;
+            }
+            int count = in.readInt();
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                UUID uuid = new UUID(in.readLong(), in.readLong());
+                String name = in.readUTF();
+                String url = in.readBoolean() ? in.readUTF() : null;
+                long expiresAt = in.readLong();
+                if (expiresAt > now) {
+                    loaded.add(new Entry(uuid, name, url, expiresAt));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (EOFException e) {
+            AngellaMod.LOGGER.warn("Avatar cache {} is truncated, keeping {} entries", file, loaded.size());
+        } catch (IOException e) {
+            AngellaMod.LOGGER.warn("Failed to read avatar cache {}: {}", file, e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            // The file is written least recently used first, so the LRU order survives the restart
+            for (Entry entry : loaded) {
+                if (!byUuid.containsKey(entry.uuid)) {
+                    store(entry);
+                }
+            }
+        }
+        AngellaMod.LOGGER.info("Loaded {} cached avatars", loaded.size());
+    }
+
+    /**
+     * Writes the live entries if anything changed since the last save.
+     * The file is replaced atomically, a crash mid-write leaves the previous one
+     */
+    void save(Path file) {
+        synchronized (saveLock) {
+            writeSnapshot(file);
+        }
+    }
+
+    private void writeSnapshot(Path file) {
+        List<Entry> snapshot;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            long now = System.currentTimeMillis();
+            snapshot = new ArrayList<>(byUuid.size());
+            for (Entry entry : byUuid.values()) {
+                if (entry.expiresAt > now) {
+                    snapshot.add(entry);
+                }
+            }
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(snapshot.size());
+                for (Entry entry : snapshot) {
+                    out.writeLong(entry.uuid.getMostSignificantBits());
+                    out.writeLong(entry.uuid.getLeastSignificantBits());
+                    out.writeUTF(entry.name);
+                    out.writeBoolean(entry.url != null);
+                    if (entry.url != null) {
+                        out.writeUTF(entry.url);
+                    }
+                    out.writeLong(entry.expiresAt);
+                }
+                out.flush();
+                channel.force(true);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            AngellaMod.LOGGER.warn("Failed to save avatar cache {}: {}", file, e.getMessage());
+            synchronized (this) {
+                dirty = true;
+            }
+        }
+    }
+
+    private static final class Entry {
+        final UUID uuid;
+        final String name;
+        final String url;
+        final long expiresAt;
+
+        Entry(UUID uuid, String name, String url, long expiresAt) {
+            this.uuid = uuid;
+            this.name = name;
+            this.url = url;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
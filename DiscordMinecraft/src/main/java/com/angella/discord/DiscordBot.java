@@ -2,6 +2,7 @@ package com.angella.discord;
 
 import com.angella.AngellaMod;
 import com.angella.config.AngellaConfig;
+import com.angella.http.OutboundHttp;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.entities.Activity;
@@ -16,19 +17,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 public class DiscordBot {
     private static final Logger LOGGER = LoggerFactory.getLogger(DiscordBot.class);
+    private static final long OUTBOX_BATCH_DELAY_MS = Long.getLong("angella.discordBatchDelayMs", 750L);
+    private static final long OUTBOX_DEDUPE_WINDOW_MS = Long.getLong("angella.discordDedupeWindowMs", 5000L);
     
     private final AngellaConfig config;
+    private final DiscordOutbox outbox = new DiscordOutbox(OUTBOX_BATCH_DELAY_MS, OUTBOX_DEDUPE_WINDOW_MS);
     private JDA jda;
     private TextChannel technicalChannel;
     private TextChannel gameChannel;
     private Message serverStartMessage;
-    private ScheduledExecutorService scheduler;
     
     public DiscordBot(AngellaConfig config) {
         this.config = config;
@@ -45,6 +45,8 @@ public class DiscordBot {
                 .enableIntents(GatewayIntent.MESSAGE_CONTENT)
                 .disableCache(CacheFlag.VOICE_STATE, CacheFlag.EMOJI, CacheFlag.STICKER, CacheFlag.SCHEDULED_EVENTS)
                 .addEventListeners(new VerificationMessageListener())
+                // Own dispatcher, JDA's shutdown must not stop the calls still being sent through the shared client
+                .setHttpClient(OutboundHttp.libraryClient())
                 .build();
         
         jda.awaitReady();
@@ -79,15 +81,10 @@ public class DiscordBot {
                 technicalChannel.sendMessage("✅ **Angella запущен!**\n\n🎮 Сервер готов к работе!\n🤖 Бот поднят и готов отправлять уведомления!\n\n*Все системы работают нормально* ✨").queue();
             });
         }
-        
-        // Initialize scheduler for dynamic updates
-        scheduler = Executors.newScheduledThreadPool(1);
     }
     
     public void shutdown() {
-        if (scheduler != null) {
-            scheduler.shutdown();
-        }
+        outbox.close();
         if (jda != null) {
             jda.shutdown();
             LOGGER.info("Discord bot shutdown complete.");
@@ -109,39 +106,38 @@ public class DiscordBot {
         return gameChannel;
     }
     
+    /**
+     * Per-channel queue that sends embeds in batches, use it instead of sendMessageEmbeds
+     */
+    public DiscordOutbox getOutbox() {
+        return outbox;
+    }
+    
     public boolean isReady() {
         return jda != null && jda.getStatus() == JDA.Status.CONNECTED && gameChannel != null;
     }
     
     public void onServerStarting() {
         if (config.sendServerStart && technicalChannel != null) {
-            CompletableFuture.runAsync(() -> {
-                technicalChannel.sendMessageEmbeds(RebootEmbedBuilder.createServerStartingEmbed(config)).queue();
-            });
+            outbox.send(technicalChannel, RebootEmbedBuilder.createServerStartingEmbed(config));
         }
     }
     
     public void onServerStarted() {
         if (technicalChannel != null) {
-            CompletableFuture.runAsync(() -> {
-                technicalChannel.sendMessageEmbeds(RebootEmbedBuilder.createServerStartedEmbed(config)).queue();
-            });
+            outbox.send(technicalChannel, RebootEmbedBuilder.createServerStartedEmbed(config));
         }
     }
     
     public void onServerStopping() {
         if (config.sendServerStop && technicalChannel != null) {
-            CompletableFuture.runAsync(() -> {
-                technicalChannel.sendMessageEmbeds(RebootEmbedBuilder.createServerStoppingEmbed(config)).queue();
-            });
+            outbox.send(technicalChannel, RebootEmbedBuilder.createServerStoppingEmbed(config));
         }
     }
     
     public void onServerStopped() {
         if (technicalChannel != null) {
-            CompletableFuture.runAsync(() -> {
-                technicalChannel.sendMessageEmbeds(RebootEmbedBuilder.createServerStoppedEmbed(config)).queue();
-            });
+            outbox.send(technicalChannel, RebootEmbedBuilder.createServerStoppedEmbed(config));
         }
         shutdown();
     }
@@ -0,0 +1,235 @@
+package com.angella.discord;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
+import net.dv8tion.jda.api.interactions.components.buttons.Button;
+import net.dv8tion.jda.api.requests.restaction.MessageCreateAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outgoing embeds, queued per channel and sent several per message.
+ *
+ * Events come in bursts (everyone joining after a restart, a group getting advancements together),
+ * so instead of one REST call per embed the queue waits batchDelayMs and sends up to 10 embeds
+ * in one message. Only one message per channel is in flight at a time: while JDA holds it back
+ * because of the route's rate limit, new embeds pile up and go out together in the next message.
+ * The same embed sent to the same channel again within dedupeWindowMs is dropped.
+ */
+public class DiscordOutbox {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiscordOutbox.class);
+
+    private final long batchDelayMs;
+    private final long dedupeWindowMs;
+    private final Map<String, ChannelQueue> channels = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Angella-Discord-Outbox");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean closed = false;
+
+    public DiscordOutbox(long batchDelayMs, long dedupeWindowMs) {
+        this.batchDelayMs = batchDelayMs;
+        this.dedupeWindowMs = dedupeWindowMs;
+    }
+
+    public CompletableFuture<Void> send(MessageChannel channel, MessageEmbed embed) {
+        return send(channel, embed, null, null);
+    }
+
+    /**
+     * Queues an embed. If linkUrl is set, the message gets a link button; embeds with different
+     * buttons never share a message. The future completes when the message carrying the embed is sent,
+     * or exceptionally if it could not be sent
+     */
+    public CompletableFuture<Void> send(MessageChannel channel, MessageEmbed embed, String linkUrl, String linkLabel) {
+        if (closed) {
+            // Shutting down, nothing left to batch with
+            return submit(channel, List.of(embed), linkUrl, linkLabel);
+        }
+        return channels.computeIfAbsent(channel.getId(), id -> new ChannelQueue(channel))
+                .add(new Outgoing(embed, linkUrl, linkLabel));
+    }
+
+    /**
+     * Sends everything still queued right away and stops the batching timer.
+     * JDA keeps the order of requests on one route, so the batches still arrive in order
+     */
+    public void close() {
+        closed = true;
+        timer.shutdownNow();
+        for (ChannelQueue queue : channels.values()) {
+            queue.flushAll();
+        }
+    }
+
+    private static CompletableFuture<Void> submit(MessageChannel channel, List<MessageEmbed> embeds, String linkUrl, String linkLabel) {
+        MessageCreateAction action = channel.sendMessageEmbeds(embeds);
+        if (linkUrl != null && !linkUrl.isEmpty()) {
+            action = action.setActionRow(Button.link(linkUrl, linkLabel));
+        }
+        return action.submit().thenAccept(message -> {});
+    }
+
+    /**
+     * Same content, ignoring the timestamp, which is always "now"
+     */
+    private static String dedupeKey(Outgoing outgoing) {
+        return outgoing.embed.toData().remove("timestamp").toString() + '|' + outgoing.linkUrl;
+    }
+
+    private final class ChannelQueue {
+        private final MessageChannel channel;
+        private final Deque<Outgoing> pending = new ArrayDeque<>();
+        // Recently queued embeds by content, for dropping duplicates
+        private final LinkedHashMap<String, Outgoing> recent = new LinkedHashMap<>();
+        private ScheduledFuture<?> scheduled;
+        private boolean inFlight = false;
+
+        ChannelQueue(MessageChannel channel) {
+            this.channel = channel;
+        }
+
+        synchronized CompletableFuture<Void> add(Outgoing outgoing) {
+            long now = System.currentTimeMillis();
+            Iterator<Outgoing> oldest = recent.values().iterator();
+            while (oldest.hasNext() && now - oldest.next().queuedAt > dedupeWindowMs) {
+                oldest.remove();
+            }
+            String key = dedupeKey(outgoing);
+            Outgoing duplicate = recent.get(key);
+            // A copy of an embed that failed to send is sent again, not dropped
+            if (duplicate != null && !duplicate.sent.isCompletedExceptionally()) {
+                LOGGER.debug("Dropping duplicate embed for channel {}", channel.getId());
+                return duplicate.sent;
+            }
+            recent.put(key, outgoing);
+            pending.add(outgoing);
+
+            if (closed) {
+                flushAll();
+            } else if (!inFlight) {
+                if (pending.size() >= Message.MAX_EMBED_COUNT) {
+                    sendNext();
+                } else if (scheduled == null) {
+                    scheduled = timer.schedule(this::flush, batchDelayMs, TimeUnit.MILLISECONDS);
+                }
+            }
+            return outgoing.sent;
+        }
+
+        private synchronized void flush() {
+            scheduled = null;
+            if (!inFlight) {
+                sendNext();
+            }
+        }
+
+        synchronized void flushAll() {
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+            while (!pending.isEmpty()) {
+                send(nextBatch());
+            }
+        }
+
+        /**
+         * Sends the next batch; when it is done, the embeds queued meanwhile go right after it
+         */
+        private void sendNext() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+            inFlight = true;
+            send(nextBatch()).whenComplete((ignored, error) -> {
+                synchronized (this) {
+                    inFlight = false;
+                    sendNext();
+                }
+            });
+        }
+
+        private CompletableFuture<Void> send(List<Outgoing> batch) {
+            List<MessageEmbed> embeds = new ArrayList<>(batch.size());
+            for (Outgoing outgoing : batch) {
+                embeds.add(outgoing.embed);
+            }
+            Outgoing first = batch.get(0);
+            CompletableFuture<Void> result;
+            try {
+                result = submit(channel, embeds, first.linkUrl, first.linkLabel);
+            } catch (Exception e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+            return result.whenComplete((ignored, error) -> {
+                if (error != null) {
+                    LOGGER.error("Failed to send {} embed(s) to Discord channel {}", batch.size(), channel.getId(), error);
+                }
+                for (Outgoing outgoing : batch) {
+                    if (error != null) {
+                        outgoing.sent.completeExceptionally(error);
+                    } else {
+                        outgoing.sent.complete(null);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Up to 10 embeds from the head of the queue with the same button,
+         * within Discord's limit on the total text of one message's embeds
+         */
+        private List<Outgoing> nextBatch() {
+            List<Outgoing> batch = new ArrayList<>();
+            int length = 0;
+            Outgoing first = pending.peek();
+            while (!pending.isEmpty() && batch.size() < Message.MAX_EMBED_COUNT) {
+                Outgoing next = pending.peek();
+                if (!batch.isEmpty() && (!Objects.equals(next.linkUrl, first.linkUrl)
+                        || length + next.embed.getLength() > MessageEmbed.EMBED_MAX_LENGTH_BOT)) {
+                    break;
+                }
+                batch.add(pending.poll());
+                length += next.embed.getLength();
+            }
+            return batch;
+        }
+    }
+
+    private static final class Outgoing {
+        final MessageEmbed embed;
+        final String linkUrl;
+        final String linkLabel;
+        final long queuedAt = System.currentTimeMillis();
+        final CompletableFuture<Void> sent = new CompletableFuture<>();
+
+        Outgoing(MessageEmbed embed, String linkUrl, String linkLabel) {
+            this.embed = embed;
+            this.linkUrl = linkUrl;
+            this.linkLabel = linkLabel;
+        }
+    }
+}
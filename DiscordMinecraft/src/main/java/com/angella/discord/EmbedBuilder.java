@@ -2,7 +2,10 @@ package com.angella.discord;
 
 import com.angella.AngellaMod;
 import com.angella.config.AngellaConfig;
+import com.angella.http.OutboundHttp;
 import com.angella.verification.VerificationManager;
+import com.launcher.shared.AdvancementCounter;
+import com.mojang.authlib.GameProfile;
 import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
 import net.minecraft.advancement.AdvancementEntry;
@@ -11,13 +14,15 @@ import net.minecraft.text.Text;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
-import java.io.InputStream;
-import java.net.URL;
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.concurrent.CompletableFuture;
 import javax.imageio.ImageIO;
 
 public class EmbedBuilder {
+    private static final Duration AVATAR_TIMEOUT = Duration.ofSeconds(5);
+    
     private final net.dv8tion.jda.api.EmbedBuilder embedBuilder;
     private final AngellaConfig config;
     
@@ -40,23 +45,69 @@ public class EmbedBuilder {
         return new EmbedBuilder(config);
     }
     
-    public static EmbedBuilder createPlayerJoinEmbed(ServerPlayerEntity player, AngellaConfig config) {
+    /**
+     * Player data needed for the join embed. Collected on the server thread,
+     * so the embed itself can be built and sent from the background thread
+     */
+    public static class PlayerJoinSnapshot {
+        // A copy of the profile (UUID, name, skin textures) for the avatar lookup
+        final GameProfile profile;
+        final String playerName;
+        final Long discordId;
+        final boolean isNewPlayer;
+        final String playTime;
+        final boolean fromLauncher;
+        final String advancementCount;
+        final String randomStat;
+        
+        private PlayerJoinSnapshot(ServerPlayerEntity player) {
+            this.profile = copyProfile(player.getGameProfile());
+            this.playerName = player.getName().getString();
+            this.discordId = VerificationManager.getDiscordId(player.getUuid());
+            this.isNewPlayer = EmbedBuilder.isNewPlayer(player);
+            this.playTime = getPlayerPlayTime(player);
+            this.fromLauncher = isFromLauncher(player);
+            this.advancementCount = getPlayerAdvancementCount(player);
+            this.randomStat = getRandomPlayerStatistic(player);
+        }
+    }
+    
+    /**
+     * SkinRestorer changes profile properties on the server thread, so the background thread gets its own copy
+     */
+    private static GameProfile copyProfile(GameProfile profile) {
+        GameProfile copy = new GameProfile(profile.getId(), profile.getName());
+        copy.getProperties().putAll(profile.getProperties());
+        return copy;
+    }
+    
+    /**
+     * Must be called on the server thread
+     */
+    public static PlayerJoinSnapshot snapshotPlayerJoin(ServerPlayerEntity player) {
+        return new PlayerJoinSnapshot(player);
+    }
+    
+    /**
+     * Builds the join embed from a snapshot. Downloads the avatar, so call it off the server thread
+     */
+    public static EmbedBuilder createPlayerJoinEmbed(PlayerJoinSnapshot snapshot, AngellaConfig config) {
         EmbedBuilder builder = create(config);
-        String playerName = player.getName().getString();
+        String playerName = snapshot.playerName;
         
         // Check if player is verified
-        Long discordId = VerificationManager.getDiscordId(player.getUuid());
+        Long discordId = snapshot.discordId;
         String verificationBadge = "";
         if (discordId != null) {
             verificationBadge = " | <@" + discordId + "> | <:verification:1445465170255024384>";
         }
         
         // Check if player is new or returning
-        boolean isNewPlayer = isNewPlayer(player);
-        String playTime = getPlayerPlayTime(player);
+        boolean isNewPlayer = snapshot.isNewPlayer;
+        String playTime = snapshot.playTime;
         
         // Check if player joined via launcher
-        boolean fromLauncher = isFromLauncher(player);
+        boolean fromLauncher = snapshot.fromLauncher;
         String launcherEmoji = "<:beta:1445916307034865798>";
         
         String title = isNewPlayer ? "🎉 Новый игрок на сервере!" : "<:login:1445295617722024017> Игрок вернулся на сервер!";
@@ -97,10 +148,10 @@ public class EmbedBuilder {
         String messageText = joinMessages[(int)(Math.random() * joinMessages.length)];
         
         // Get advancement count
-        String advancementCount = getPlayerAdvancementCount(player);
+        String advancementCount = snapshot.advancementCount;
         
         // Get random statistic
-        String randomStat = getRandomPlayerStatistic(player);
+        String randomStat = snapshot.randomStat;
         
         // Build description with separators
         StringBuilder description = new StringBuilder();
@@ -130,9 +181,10 @@ public class EmbedBuilder {
         
         builder.embedBuilder.setTitle(title, null);
         builder.embedBuilder.setDescription(description.toString());
-        builder.setPlayerThumbnail(player);
+        String avatarUrl = SkinRestorerIntegration.getPlayerAvatarUrl(snapshot.profile, config);
+        builder.setThumbnail(avatarUrl);
         // Get color from player avatar
-        Color avatarColor = getColorFromAvatar(player, config);
+        Color avatarColor = getColorFromAvatar(avatarUrl, snapshot.playerName);
         builder.embedBuilder.setColor(avatarColor != null ? avatarColor : Color.decode("#00FF00")); // Зеленый для входа как fallback
         
         // Add button for map
@@ -206,22 +258,8 @@ public class EmbedBuilder {
     
     private static String getPlayerAdvancementCount(ServerPlayerEntity player) {
         try {
-            var advancementTracker = player.getAdvancementTracker();
-            int completedCount = 0;
-            
-            // Count completed advancements
-            var server = player.getServer();
-            if (server != null) {
-                var advancementManager = server.getAdvancementLoader();
-                for (var advancement : advancementManager.getAdvancements()) {
-                    if (advancement.value().display().isPresent()) {
-                        var progress = advancementTracker.getProgress(advancement);
-                        if (progress.isDone()) {
-                            completedCount++;
-                        }
-                    }
-                }
-            }
+            // Counter is maintained incrementally by the advancement mixins
+            int completedCount = AdvancementCounter.getCount(player);
             
             if (completedCount == 0) {
                 return "🏆 Получено достижений: **" + EmojiHelper.numberToEmoji(0) + "**";
@@ -407,9 +445,10 @@ public class EmbedBuilder {
         
         builder.embedBuilder.setTitle("<:quit:1445295564697894934> Игрок покинул сервер", null);
         builder.embedBuilder.setDescription(description.toString());
-        builder.setPlayerThumbnail(player);
+        String avatarUrl = SkinRestorerIntegration.getPlayerAvatarUrl(player, config);
+        builder.setThumbnail(avatarUrl);
         // Get color from player avatar
-        Color avatarColor = getColorFromAvatar(player, config);
+        Color avatarColor = getColorFromAvatar(avatarUrl, player.getName().getString());
         builder.embedBuilder.setColor(avatarColor != null ? avatarColor : Color.decode("#FFA500")); // Оранжевый для выхода как fallback
         builder.embedBuilder.setFooter("Angella • До встречи! <:quit:1445295564697894934>", null);
         return builder;
@@ -505,12 +544,47 @@ public class EmbedBuilder {
         }
     }
     
-    public static EmbedBuilder createAdvancementEmbed(ServerPlayerEntity player, AdvancementEntry advancement, Text chatMessage, AngellaConfig config) {
+    /**
+     * Player data needed for the advancement embed, collected on the server thread like PlayerJoinSnapshot
+     */
+    public static class AdvancementSnapshot {
+        // A copy of the profile (UUID, name, skin textures) for the avatar lookup
+        final GameProfile profile;
+        final String playerName;
+        final Long discordId;
+        final String advancementCount;
+        // Advancement definitions and the built chat text do not change, they can be shared
+        final AdvancementEntry advancement;
+        final Text chatMessage;
+        
+        private AdvancementSnapshot(ServerPlayerEntity player, AdvancementEntry advancement, Text chatMessage) {
+            this.profile = copyProfile(player.getGameProfile());
+            this.playerName = player.getName().getString();
+            this.discordId = VerificationManager.getDiscordId(player.getUuid());
+            this.advancementCount = getPlayerAdvancementCount(player);
+            this.advancement = advancement;
+            this.chatMessage = chatMessage;
+        }
+    }
+    
+    /**
+     * Must be called on the server thread
+     */
+    public static AdvancementSnapshot snapshotAdvancement(ServerPlayerEntity player, AdvancementEntry advancement, Text chatMessage) {
+        return new AdvancementSnapshot(player, advancement, chatMessage);
+    }
+    
+    /**
+     * Builds the advancement embed from a snapshot. Downloads the avatar, so call it off the server thread
+     */
+    public static EmbedBuilder createAdvancementEmbed(AdvancementSnapshot snapshot, AngellaConfig config) {
         EmbedBuilder builder = create(config);
-        String playerName = player.getName().getString();
+        String playerName = snapshot.playerName;
+        AdvancementEntry advancement = snapshot.advancement;
+        Text chatMessage = snapshot.chatMessage;
         
         // Check if player is verified
-        Long discordId = VerificationManager.getDiscordId(player.getUuid());
+        Long discordId = snapshot.discordId;
         String verificationBadge = "";
         if (discordId != null) {
             verificationBadge = " | <@" + discordId + "> | <:verification:1445465170255024384>";
@@ -588,6 +662,9 @@ public class EmbedBuilder {
             description.append("**" + playerName + "**\n");
         }
         description.append(formattedMessageText).append("\n");
+        if (!snapshot.advancementCount.isEmpty()) {
+            description.append(snapshot.advancementCount).append("\n");
+        }
         description.append(EmojiHelper.getSeparatorLine());
         
         builder.embedBuilder.setDescription(description.toString());
@@ -596,9 +673,10 @@ public class EmbedBuilder {
             builder.embedBuilder.addField("📝 Описание", advancementDesc, false);
         }
         
-        builder.setPlayerThumbnail(player);
+        String avatarUrl = SkinRestorerIntegration.getPlayerAvatarUrl(snapshot.profile, config);
+        builder.setThumbnail(avatarUrl);
         // Get color from player avatar, but use advancement color as fallback
-        Color avatarColor = getColorFromAvatar(player, config);
+        Color avatarColor = getColorFromAvatar(avatarUrl, playerName);
         builder.embedBuilder.setColor(avatarColor != null ? avatarColor : advancementColor);
         builder.embedBuilder.setFooter("Angella • Продолжай в том же духе! <:login:1445295617722024017>", null);
         return builder;
@@ -634,16 +712,16 @@ public class EmbedBuilder {
      * Gets a color from player's avatar image
      * Returns a random color from the avatar or null if can't load
      */
-    private static Color getColorFromAvatar(ServerPlayerEntity player, AngellaConfig config) {
+    private static Color getColorFromAvatar(String avatarUrl, String playerName) {
         try {
-            String avatarUrl = SkinRestorerIntegration.getPlayerAvatarUrl(player, config);
             if (avatarUrl == null || avatarUrl.isEmpty()) {
                 return null;
             }
             
             // Try to load image and get a random color from it
-            try (InputStream in = new URL(avatarUrl).openStream()) {
-                BufferedImage image = ImageIO.read(in);
+            byte[] avatar = OutboundHttp.getBytes(avatarUrl, AVATAR_TIMEOUT);
+            if (avatar != null) {
+                BufferedImage image = ImageIO.read(new ByteArrayInputStream(avatar));
                 if (image != null) {
                     // Get a random pixel color from the image
                     int width = image.getWidth();
@@ -678,7 +756,7 @@ public class EmbedBuilder {
                 }
             }
         } catch (Exception e) {
-            AngellaMod.LOGGER.debug("Failed to get color from avatar for {}: {}", player.getName().getString(), e.getMessage());
+            AngellaMod.LOGGER.debug("Failed to get color from avatar for {}: {}", playerName, e.getMessage());
         }
         return null;
     }
@@ -708,28 +786,16 @@ public class EmbedBuilder {
     }
     
     /**
-     * Sends embed to game channel using DiscordBot with optional button
+     * Sends embed to game channel using DiscordBot with optional button.
+     * The future fails if Discord did not accept the message
      */
     public CompletableFuture<Void> sendToGame() {
         DiscordBot bot = AngellaMod.getDiscordBot();
         if (bot != null && bot.isReady()) {
             MessageChannel channel = bot.getGameChannel();
             if (channel != null) {
-                var messageAction = channel.sendMessageEmbeds(build());
-                
-                // Add button if map URL is set
-                if (mapUrl != null && !mapUrl.isEmpty()) {
-                    messageAction = messageAction.setActionRow(
-                        net.dv8tion.jda.api.interactions.components.buttons.Button.link(mapUrl, "🗺️ Интерактивная карта")
-                    );
-                }
-                
-                return messageAction.submit()
-                        .thenAccept(message -> {})
-                        .exceptionally(throwable -> {
-                            AngellaMod.LOGGER.error("Failed to send Discord message", throwable);
-                            return null;
-                        });
+                // Button is added if map URL is set; embeds with the same button can share a message
+                return bot.getOutbox().send(channel, build(), mapUrl, "🗺️ Интерактивная карта");
             }
         }
         return CompletableFuture.completedFuture(null);
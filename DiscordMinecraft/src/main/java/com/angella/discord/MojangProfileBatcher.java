@@ -0,0 +1,149 @@
+package com.angella.discord;
+
+import com.angella.AngellaMod;
+import com.angella.http.OutboundHttp;
+import com.angella.http.SingleFlight;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves player names to UUIDs through Mojang's bulk profile endpoint.
+ *
+ * Names asked for within batchWindowMs go out together, up to 10 per request (the endpoint's limit).
+ * A name that is already being resolved is not asked again, the callers share the result.
+ * The future completes with the UUID without dashes, or null if there is no such player
+ * or the request failed.
+ */
+class MojangProfileBatcher {
+    static final int MAX_NAMES_PER_REQUEST = 10;
+
+    private final String bulkUrl;
+    private final long batchWindowMs;
+    private final Duration timeout;
+    private final SingleFlight<String, String> lookups = new SingleFlight<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Angella-Mojang");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Guarded by this
+    private final Map<String, CompletableFuture<String>> pending = new HashMap<>();
+    private ScheduledFuture<?> scheduled;
+
+    MojangProfileBatcher(String bulkUrl, long batchWindowMs, Duration timeout) {
+        this.bulkUrl = bulkUrl;
+        this.batchWindowMs = batchWindowMs;
+        this.timeout = timeout;
+    }
+
+    CompletableFuture<String> lookup(String playerName) {
+        String key = playerName.toLowerCase(Locale.ROOT);
+        return lookups.executeAsync(key, () -> enqueue(key));
+    }
+
+    private synchronized CompletableFuture<String> enqueue(String key) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        pending.put(key, result);
+        if (pending.size() >= MAX_NAMES_PER_REQUEST) {
+            flush();
+        } else if (scheduled == null) {
+            scheduled = timer.schedule(this::flush, batchWindowMs, TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+
+    private synchronized void flush() {
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<String, CompletableFuture<String>> batch = new HashMap<>(pending);
+        pending.clear();
+        try {
+            send(batch);
+        } catch (RuntimeException e) {
+            AngellaMod.LOGGER.debug("Failed to start Mojang bulk lookup: {}", e.getMessage());
+            complete(batch, Map.of());
+        }
+    }
+
+    private void send(Map<String, CompletableFuture<String>> batch) {
+        JsonArray names = new JsonArray();
+        for (String name : batch.keySet()) {
+            names.add(name);
+        }
+        Request request = new Request.Builder()
+                .url(bulkUrl)
+                .post(RequestBody.create(names.toString(), OutboundHttp.JSON))
+                .build();
+        OutboundHttp.client(timeout).newCall(request).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                Map<String, String> ids = new HashMap<>();
+                try (response) {
+                    ResponseBody body = response.body();
+                    if (response.isSuccessful() && body != null) {
+                        ids = parseProfiles(body.string());
+                    } else {
+                        AngellaMod.LOGGER.debug("Mojang bulk lookup of {} names failed with code {}", batch.size(), response.code());
+                    }
+                } catch (Exception e) {
+                    AngellaMod.LOGGER.debug("Failed to read Mojang bulk lookup response: {}", e.getMessage());
+                }
+                complete(batch, ids);
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                AngellaMod.LOGGER.debug("Mojang bulk lookup of {} names failed: {}", batch.size(), e.getMessage());
+                complete(batch, Map.of());
+            }
+        });
+    }
+
+    /**
+     * [{"id": "...", "name": "..."}, ...]; unknown names are simply missing from the array
+     */
+    static Map<String, String> parseProfiles(String json) {
+        Map<String, String> ids = new HashMap<>();
+        JsonElement root = JsonParser.parseString(json);
+        if (!root.isJsonArray()) {
+            return ids;
+        }
+        for (JsonElement element : root.getAsJsonArray()) {
+            JsonObject profile = element.getAsJsonObject();
+            if (profile.has("id") && profile.has("name")) {
+                ids.put(profile.get("name").getAsString().toLowerCase(Locale.ROOT), profile.get("id").getAsString());
+            }
+        }
+        return ids;
+    }
+
+    private static void complete(Map<String, CompletableFuture<String>> batch, Map<String, String> ids) {
+        for (Map.Entry<String, CompletableFuture<String>> entry : batch.entrySet()) {
+            entry.getValue().complete(ids.get(entry.getKey()));
+        }
+    }
+}
@@ -2,169 +2,165 @@ package com.angella.discord;
 
 import com.angella.AngellaMod;
 import com.angella.config.AngellaConfig;
+import com.angella.http.OutboundHttp;
+import com.angella.http.SingleFlight;
+import com.angella.scheduler.TickScheduler;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.launcher.shared.SkinTextureCache;
+import com.launcher.shared.SkinTextureCache.SkinTexture;
+import com.mojang.authlib.GameProfile;
 
 import net.fabricmc.loader.api.FabricLoader;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
 import java.util.UUID;
 import net.minecraft.server.network.ServerPlayerEntity;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class SkinRestorerIntegration {
-    private static final ConcurrentHashMap<String, String> avatarCache = new ConcurrentHashMap<>();
+    private static final Path AVATAR_CACHE_FILE = FabricLoader.getInstance().getConfigDir().resolve("angella/avatar_cache.bin");
+    private static final int AVATAR_CACHE_SAVE_INTERVAL_TICKS = 6000; // 5 minutes
+    // SkinRestorer/Mojang results only; skins from the GameProfile are read fresh every time
+    private static final AvatarCache avatarCache = new AvatarCache(
+            Integer.getInteger("angella.avatarCacheSize", 1024),
+            Long.getLong("angella.avatarCacheTtlMs", 24 * 60 * 60 * 1000L),
+            Long.getLong("angella.avatarNegativeTtlMs", 30 * 60 * 1000L));
     private static final String MINECRAFT_HEADS_API = "https://mc-heads.net/avatar/";
     private static final String CRAFATAR_API = "https://crafatar.com/avatars/";
     private static final String MINESKIN_API = "https://api.mineskin.org/get/uuid/";
     private static final String MCHEADS_API = "https://mc-heads.net/avatar/";
+    private static final String MOJANG_BULK_PROFILES_API = "https://api.minecraftservices.com/minecraft/profile/lookup/bulk/byname";
+    private static final Duration SKINRESTORER_TIMEOUT = Duration.ofSeconds(4);
+    private static final Duration MOJANG_SYNC_TIMEOUT = Duration.ofSeconds(4);
+    private static final Duration MOJANG_TIMEOUT = Duration.ofSeconds(6);
+    private static final long MOJANG_BATCH_WINDOW_MS = Long.getLong("angella.mojangBatchWindowMs", 50L);
+    // The join embed, the color sampler and the API can ask about the same player at the same moment
+    private static final MojangProfileBatcher mojangProfiles = new MojangProfileBatcher(MOJANG_BULK_PROFILES_API, MOJANG_BATCH_WINDOW_MS, MOJANG_TIMEOUT);
+    private static final SingleFlight<String, SkinLookup> skinRestorerLookups = new SingleFlight<>();
+    
+    /**
+     * Reads the saved avatar cache in the background and starts saving it periodically
+     */
+    public static void loadCache() {
+        TickScheduler.runAsync(() -> avatarCache.load(AVATAR_CACHE_FILE));
+        scheduleCacheSave();
+    }
+    
+    private static void scheduleCacheSave() {
+        TickScheduler.runLater(AVATAR_CACHE_SAVE_INTERVAL_TICKS, () -> {
+            TickScheduler.runAsync(() -> avatarCache.save(AVATAR_CACHE_FILE));
+            scheduleCacheSave();
+        });
+    }
+    
+    /**
+     * Writes the avatar cache to disk, called when the server stops
+     */
+    public static void saveCache() {
+        avatarCache.save(AVATAR_CACHE_FILE);
+    }
     
     /**
      * Gets the player's avatar URL using texture from GameProfile, trying SkinRestorer first, then falling back
      */
     public static String getPlayerAvatarUrl(ServerPlayerEntity player, AngellaConfig config) {
-        String playerName = player.getName().getString();
-        UUID playerUuid = player.getUuid();
+        return getPlayerAvatarUrl(player.getGameProfile(), config);
+    }
+    
+    /**
+     * Same as above, but from a profile captured on the server thread, so it can run in the background
+     */
+    public static String getPlayerAvatarUrl(GameProfile profile, AngellaConfig config) {
+        String playerName = profile.getName();
+        UUID playerUuid = profile.getId();
         String uuidString = playerUuid.toString().replace("-", "");
         
-        // Check cache first
-        String cached = avatarCache.get(playerName);
-        if (cached != null) {
-            return cached;
-        }
-        
-        // Method 1: Try to get texture directly from player's GameProfile
-        String textureUrl = getTextureFromGameProfile(player);
+        // Method 1: Try to get texture directly from player's GameProfile (no network, always current)
+        String textureUrl = getTextureFromGameProfile(profile);
         if (textureUrl != null && !textureUrl.isEmpty()) {
-            // Use texture URL directly - convert to head URL
-            // If texture URL is from textures.minecraft.net, we can use it with mc-heads
-            if (textureUrl.contains("textures.minecraft.net")) {
-                // Extract texture hash from URL
-                String textureHash = extractTextureHash(textureUrl);
-                if (textureHash != null) {
-                    String avatarUrl = "https://mc-heads.net/avatar/" + textureHash + "/128";
-                    avatarCache.put(playerName, avatarUrl);
-                    return avatarUrl;
-                }
-            }
-            // If it's a direct texture URL, use it
-            avatarCache.put(playerName, textureUrl);
             return textureUrl;
         }
         
-        // Method 2: Try SkinRestorer if enabled
+        // Method 2: Try SkinRestorer if enabled, the result (found or not) is cached, a failed lookup is not
         if (config.isUseSkinRestorer()) {
-            String skinRestorerUrl = getSkinRestorerAvatarUrl(player, playerName, uuidString, config);
+            AvatarCache.Hit cached = avatarCache.get(playerUuid);
+            String skinRestorerUrl;
+            if (cached != null) {
+                skinRestorerUrl = cached.url;
+            } else {
+                SkinLookup lookup = getSkinRestorerAvatarUrlByName(playerName, uuidString, config);
+                skinRestorerUrl = lookup.url;
+                if (!lookup.failed) {
+                    avatarCache.put(playerUuid, playerName, emptyToNull(skinRestorerUrl));
+                }
+            }
             if (skinRestorerUrl != null && !skinRestorerUrl.isEmpty()) {
-                avatarCache.put(playerName, skinRestorerUrl);
                 return skinRestorerUrl;
             }
         }
         
         // Fallback: Use UUID with mc-heads.net
-        String fallbackUrl = MCHEADS_API + uuidString + "/128";
-        avatarCache.put(playerName, fallbackUrl);
-        return fallbackUrl;
+        return MCHEADS_API + uuidString + "/128";
     }
     
-    /**
-     * Gets texture URL directly from player's GameProfile
-     */
-    private static String getTextureFromGameProfile(ServerPlayerEntity player) {
-        try {
-            var gameProfile = player.getGameProfile();
-            var properties = gameProfile.getProperties();
-            var textures = properties.get("textures");
-            
-            if (textures != null && !textures.isEmpty()) {
-                var textureProperty = textures.iterator().next();
-                // Property has value() method in Minecraft
-                String value = textureProperty.value();
-                
-                // Decode base64 texture value
-                if (value != null && !value.isEmpty()) {
-                    try {
-                        String decoded = new String(java.util.Base64.getDecoder().decode(value));
-                        JsonObject textureJson = JsonParser.parseString(decoded).getAsJsonObject();
-                        
-                        if (textureJson.has("textures")) {
-                            JsonObject texturesObj = textureJson.getAsJsonObject("textures");
-                            if (texturesObj.has("SKIN")) {
-                                JsonObject skin = texturesObj.getAsJsonObject("SKIN");
-                                if (skin.has("url")) {
-                                    String skinUrl = skin.get("url").getAsString();
-                                    // Convert texture URL to head URL
-                                    return convertTextureUrlToHeadUrl(skinUrl);
-                                }
-                            }
-                        }
-                    } catch (Exception e) {
-                        AngellaMod.LOGGER.debug("Failed to decode texture for {}: {}", player.getName().getString(), e.getMessage());
-                    }
-                }
-            }
-        } catch (Exception e) {
-            AngellaMod.LOGGER.debug("Failed to get texture from GameProfile for {}: {}", player.getName().getString(), e.getMessage());
-        }
-        return null;
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
     }
     
     /**
-     * Extracts texture hash from Minecraft texture URL
+     * Gets head URL from player's GameProfile. The textures property is decoded once
+     * per skin change, see SkinTextureCache
      */
-    private static String extractTextureHash(String textureUrl) {
+    private static String getTextureFromGameProfile(GameProfile profile) {
         try {
-            // URL format: http://textures.minecraft.net/texture/{hash}
-            int lastSlash = textureUrl.lastIndexOf('/');
-            if (lastSlash != -1 && lastSlash < textureUrl.length() - 1) {
-                return textureUrl.substring(lastSlash + 1);
+            SkinTexture texture = SkinTextureCache.get(profile);
+            if (texture != null) {
+                return texture.headUrl128;
             }
         } catch (Exception e) {
-            // Ignore
+            AngellaMod.LOGGER.debug("Failed to get texture from GameProfile for {}: {}", profile.getName(), e.getMessage());
         }
         return null;
     }
     
-    /**
-     * Converts texture URL to head URL
-     */
-    private static String convertTextureUrlToHeadUrl(String textureUrl) {
-        String hash = extractTextureHash(textureUrl);
-        if (hash != null) {
-            return "https://mc-heads.net/avatar/" + hash + "/128";
-        }
-        return textureUrl; // Return original if can't convert
-    }
-    
     /**
      * Gets the player's avatar URL by name (for backwards compatibility)
      */
     public static String getPlayerAvatarUrl(String playerName, AngellaConfig config) {
-        // Check cache first
-        String cached = avatarCache.get(playerName);
-        if (cached != null) {
-            return cached;
-        }
-        
         // Try SkinRestorer if enabled (but we don't have player entity here)
         if (config.isUseSkinRestorer()) {
-            String skinRestorerUrl = getSkinRestorerAvatarUrlByName(playerName, null, config);
+            AvatarCache.Hit cached = avatarCache.getByName(playerName);
+            String skinRestorerUrl;
+            if (cached != null) {
+                skinRestorerUrl = cached.url;
+            } else {
+                SkinLookup lookup = getSkinRestorerAvatarUrlByName(playerName, null, config);
+                skinRestorerUrl = lookup.url;
+                // Without the real UUID the result is stored under the offline-mode UUID of the name
+                if (!lookup.failed) {
+                    avatarCache.put(offlineUuid(playerName), playerName, emptyToNull(skinRestorerUrl));
+                }
+            }
             if (skinRestorerUrl != null && !skinRestorerUrl.isEmpty()) {
-                avatarCache.put(playerName, skinRestorerUrl);
                 return skinRestorerUrl;
             }
         }
         
         // Fallback to mc-heads.net (works with username directly)
-        String fallbackUrl = MINECRAFT_HEADS_API + playerName + "/128";
-        avatarCache.put(playerName, fallbackUrl);
-        return fallbackUrl;
+        return MINECRAFT_HEADS_API + playerName + "/128";
+    }
+    
+    private static UUID offlineUuid(String playerName) {
+        return UUID.nameUUIDFromBytes(("OfflinePlayer:" + playerName).getBytes(StandardCharsets.UTF_8));
     }
     
     /**
@@ -172,42 +168,30 @@ public class SkinRestorerIntegration {
      * SkinRestorer typically stores skins in the server directory
      * We'll try multiple methods to get the skin
      */
-    private static String getSkinRestorerAvatarUrl(ServerPlayerEntity player, String playerName, String uuid, AngellaConfig config) {
-        // First try to get texture from player's current GameProfile (which SkinRestorer updates)
-        String textureUrl = getTextureFromGameProfile(player);
-        if (textureUrl != null && !textureUrl.isEmpty()) {
-            return textureUrl;
-        }
-        
-        // Then try other methods
-        return getSkinRestorerAvatarUrlByName(playerName, uuid, config);
+    private static SkinLookup getSkinRestorerAvatarUrlByName(String playerName, String uuid, AngellaConfig config) {
+        // Concurrent lookups of one player share a single request. The result depends on the UUID
+        // when there is one, so callers with different UUIDs for the same name must not share it
+        String key = uuid != null && !uuid.isEmpty()
+                ? "uuid:" + uuid
+                : "name:" + playerName.toLowerCase(Locale.ROOT);
+        return skinRestorerLookups.execute(key, () -> lookupSkinRestorerAvatarUrl(playerName, uuid, config));
     }
     
-    private static String getSkinRestorerAvatarUrlByName(String playerName, String uuid, AngellaConfig config) {
+    private static SkinLookup lookupSkinRestorerAvatarUrl(String playerName, String uuid, AngellaConfig config) {
+        // Set when a source could not answer, then "nothing found" is not a real answer
+        boolean failed = false;
         try {
             // Method 1: Try SkinRestorer API endpoint
             String apiUrl = config.getSkinRestorerApiUrl();
             if (apiUrl != null && !apiUrl.isEmpty()) {
                 try {
                     // Try API endpoint: /api/v1/skin/{playerName}
-                    URL url = new URL(apiUrl + "/" + playerName);
-                    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                    conn.setRequestMethod("GET");
-                    conn.setConnectTimeout(2000);
-                    conn.setReadTimeout(2000);
-                    
-                    int responseCode = conn.getResponseCode();
-                    if (responseCode == HttpURLConnection.HTTP_OK) {
-                        try (BufferedReader reader = new BufferedReader(
-                                new InputStreamReader(conn.getInputStream()))) {
-                            StringBuilder response = new StringBuilder();
-                            String line;
-                            while ((line = reader.readLine()) != null) {
-                                response.append(line);
-                            }
-                            
+                    Request request = new Request.Builder().url(apiUrl + "/" + playerName).get().build();
+                    try (Response response = OutboundHttp.client(SKINRESTORER_TIMEOUT).newCall(request).execute()) {
+                        ResponseBody body = response.body();
+                        if (response.isSuccessful() && body != null) {
                             // Parse JSON response
-                            JsonObject json = JsonParser.parseString(response.toString()).getAsJsonObject();
+                            JsonObject json = JsonParser.parseString(body.string()).getAsJsonObject();
                             if (json.has("skinUrl") || json.has("texture") || json.has("value")) {
                                 String textureValue = null;
                                 if (json.has("value")) {
@@ -221,13 +205,18 @@ public class SkinRestorerIntegration {
                                 if (textureValue != null && !textureValue.isEmpty()) {
                                     // Convert to Minecraft head URL
                                     // If it's a base64 texture, we can use mc-heads.net
-                                    return "https://mc-heads.net/avatar/" + textureValue + "/128";
+                                    return SkinLookup.found("https://mc-heads.net/avatar/" + textureValue + "/128");
                                 }
                             }
+                        } else if (response.code() != 404) {
+                            // 404 means the player has no skin there, anything else says nothing about it
+                            AngellaMod.LOGGER.debug("SkinRestorer API request for {} failed with code {}", playerName, response.code());
+                            failed = true;
                         }
                     }
                 } catch (Exception e) {
                     AngellaMod.LOGGER.debug("SkinRestorer API request failed for {}: {}", playerName, e.getMessage());
+                    failed = true;
                 }
             }
             
@@ -257,15 +246,15 @@ public class SkinRestorerIntegration {
                             // Use UUID if available, otherwise use username
                             if (uuid != null && !uuid.isEmpty()) {
                                 // Use UUID with mc-heads.net
-                                return MCHEADS_API + uuid + "/128";
+                                return SkinLookup.found(MCHEADS_API + uuid + "/128");
                             } else {
                                 // Try to get UUID from Mojang API
                                 String mojangUuid = getPlayerUuid(playerName);
                                 if (mojangUuid != null) {
-                                    return MCHEADS_API + mojangUuid.replace("-", "") + "/128";
+                                    return SkinLookup.found(MCHEADS_API + mojangUuid.replace("-", "") + "/128");
                                 } else {
                                     // Fallback to username
-                                    return MINECRAFT_HEADS_API + playerName + "/128";
+                                    return SkinLookup.found(MINECRAFT_HEADS_API + playerName + "/128");
                                 }
                             }
                         }
@@ -273,13 +262,14 @@ public class SkinRestorerIntegration {
                 }
             } catch (Exception e) {
                 AngellaMod.LOGGER.debug("Failed to read SkinRestorer files for {}: {}", playerName, e.getMessage());
+                failed = true;
             }
             
-            return null;
+            return failed ? SkinLookup.FAILED : SkinLookup.NOT_FOUND;
             
         } catch (Exception e) {
             AngellaMod.LOGGER.debug("Failed to get skin from SkinRestorer for player {}: {}", playerName, e.getMessage());
-            return null;
+            return SkinLookup.FAILED;
         }
     }
     
@@ -288,30 +278,11 @@ public class SkinRestorerIntegration {
      */
     private static String getPlayerUuid(String playerName) {
         try {
-            URL url = new URL("https://api.mojang.com/users/profiles/minecraft/" + playerName);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(2000);
-            conn.setReadTimeout(2000);
-            
-            int responseCode = conn.getResponseCode();
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(conn.getInputStream()))) {
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                    
-                    JsonObject json = JsonParser.parseString(response.toString()).getAsJsonObject();
-                    if (json.has("id")) {
-                        String id = json.get("id").getAsString();
-                        // Format UUID with dashes
-                        return id.substring(0, 8) + "-" + id.substring(8, 12) + "-" + 
-                               id.substring(12, 16) + "-" + id.substring(16, 20) + "-" + id.substring(20, 32);
-                    }
-                }
+            String id = mojangProfiles.lookup(playerName).get(MOJANG_SYNC_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            if (id != null && id.length() == 32) {
+                // Format UUID with dashes
+                return id.substring(0, 8) + "-" + id.substring(8, 12) + "-" + 
+                       id.substring(12, 16) + "-" + id.substring(16, 20) + "-" + id.substring(20, 32);
             }
         } catch (Exception e) {
             AngellaMod.LOGGER.debug("Failed to get UUID for player {}: {}", playerName, e.getMessage());
@@ -320,45 +291,22 @@ public class SkinRestorerIntegration {
     }
     
     /**
-     * Gets player UUID from Mojang API (fallback) - async version
+     * Gets player UUID (without dashes) from Mojang API (fallback) - async version.
+     * Names are resolved in batches of up to 10, see MojangProfileBatcher
      */
     public static CompletableFuture<String> getPlayerUuidAsync(String playerName) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                URL url = new URL("https://api.mojang.com/users/profiles/minecraft/" + playerName);
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("GET");
-                conn.setConnectTimeout(3000);
-                conn.setReadTimeout(3000);
-                
-                int responseCode = conn.getResponseCode();
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    try (BufferedReader reader = new BufferedReader(
-                            new InputStreamReader(conn.getInputStream()))) {
-                        StringBuilder response = new StringBuilder();
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            response.append(line);
-                        }
-                        
-                        JsonObject json = JsonParser.parseString(response.toString()).getAsJsonObject();
-                        if (json.has("id")) {
-                            return json.get("id").getAsString();
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                AngellaMod.LOGGER.debug("Failed to get UUID for player {}: {}", playerName, e.getMessage());
-            }
-            return null;
-        });
+        return mojangProfiles.lookup(playerName);
     }
     
     /**
      * Clears the avatar cache (useful when player changes skin)
      */
     public static void clearCache(String playerName) {
-        avatarCache.remove(playerName);
+        avatarCache.removeByName(playerName);
+    }
+    
+    public static void clearCache(UUID playerUuid) {
+        avatarCache.remove(playerUuid);
     }
     
     /**
@@ -367,5 +315,25 @@ public class SkinRestorerIntegration {
     public static void clearAllCache() {
         avatarCache.clear();
     }
+    
+    /**
+     * Result of a SkinRestorer lookup. NOT_FOUND is cached like a found skin;
+     * FAILED (timeout, I/O or server error) is not, the next request asks again
+     */
+    private static final class SkinLookup {
+        static final SkinLookup NOT_FOUND = new SkinLookup(null, false);
+        static final SkinLookup FAILED = new SkinLookup(null, true);
+        
+        final String url;
+        final boolean failed;
+        
+        private SkinLookup(String url, boolean failed) {
+            this.url = url;
+            this.failed = failed;
+        }
+        
+        static SkinLookup found(String url) {
+            return new SkinLookup(url, false);
+        }
+    }
 }
-
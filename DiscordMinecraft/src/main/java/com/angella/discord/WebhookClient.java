@@ -1,54 +1,78 @@
 package com.angella.discord;
 
 import com.angella.AngellaMod;
+import com.angella.http.OutboundHttp;
 import com.google.gson.JsonObject;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
 
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Sends Discord webhook messages without blocking any thread on I/O.
+ *
+ * - Requests go out asynchronously on the shared HTTP client; timers and callbacks run on
+ *   the client's own "Angella-Webhook" thread, never on the common pool.
+ * - Messages to the same webhook are delivered in the order they were sent: the next one
+ *   starts only after the previous one succeeded or gave up.
+ * - At most MAX_IN_FLIGHT requests run at once across all webhooks.
+ * - 429 waits for Retry-After, 5xx and connection errors are retried with exponential backoff,
+ *   other 4xx fail right away.
+ */
 public class WebhookClient {
-    
+    private static final int MAX_IN_FLIGHT = Integer.getInteger("angella.webhookMaxInFlight", 4);
+    private static final int MAX_ATTEMPTS = Integer.getInteger("angella.webhookMaxAttempts", 5);
+    private static final long BASE_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 30_000;
+    // A longer Retry-After means the webhook is blocked for a while, the message is dropped
+    private static final long MAX_RETRY_AFTER_MS = 60_000;
+
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Angella-Webhook");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // All state below is guarded by LOCK
+    private static final Object LOCK = new Object();
+    private static final Map<String, Lane> lanes = new HashMap<>();
+    // Lanes that have a message to send and nothing in flight, in the order they became ready
+    private static final Deque<Lane> ready = new ArrayDeque<>();
+    private static int inFlight = 0;
+
     /**
-     * Sends a message to Discord webhook
+     * Sends a message to Discord webhook. Completes with false if it could not be delivered
      */
     public static CompletableFuture<Boolean> sendWebhook(String webhookUrl, JsonObject payload) {
-        return CompletableFuture.supplyAsync(() -> {
-            if (webhookUrl == null || webhookUrl.isEmpty()) {
-                AngellaMod.LOGGER.warn("Webhook URL is not configured!");
-                return false;
-            }
-            
-            try {
-                URL url = new URL(webhookUrl);
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("POST");
-                conn.setRequestProperty("Content-Type", "application/json");
-                conn.setDoOutput(true);
-                
-                String jsonPayload = payload.toString();
-                
-                try (OutputStream os = conn.getOutputStream()) {
-                    byte[] input = jsonPayload.getBytes(StandardCharsets.UTF_8);
-                    os.write(input, 0, input.length);
-                }
-                
-                int responseCode = conn.getResponseCode();
-                if (responseCode >= 200 && responseCode < 300) {
-                    return true;
-                } else {
-                    AngellaMod.LOGGER.warn("Webhook request failed with code: {}", responseCode);
-                    return false;
-                }
-            } catch (Exception e) {
-                AngellaMod.LOGGER.error("Failed to send webhook message", e);
-                return false;
+        if (webhookUrl == null || webhookUrl.isEmpty()) {
+            AngellaMod.LOGGER.warn("Webhook URL is not configured!");
+            return CompletableFuture.completedFuture(false);
+        }
+
+        Delivery delivery = new Delivery(payload.toString());
+        synchronized (LOCK) {
+            Lane lane = lanes.computeIfAbsent(webhookUrl, Lane::new);
+            lane.queue.add(delivery);
+            if (!lane.busy && lane.queue.size() == 1) {
+                ready.add(lane);
             }
-        });
+        }
+        pump();
+        return delivery.result;
     }
-    
+
     /**
      * Sends a simple text message to webhook
      */
@@ -57,5 +81,154 @@ public class WebhookClient {
         payload.addProperty("content", message);
         return sendWebhook(webhookUrl, payload);
     }
-}
 
+    /**
+     * Starts the heads of ready lanes while there is room
+     */
+    private static void pump() {
+        while (true) {
+            Lane lane;
+            Delivery delivery;
+            synchronized (LOCK) {
+                if (inFlight >= MAX_IN_FLIGHT || ready.isEmpty()) {
+                    return;
+                }
+                lane = ready.poll();
+                delivery = lane.queue.poll();
+                lane.busy = true;
+                inFlight++;
+            }
+            start(lane, delivery);
+        }
+    }
+
+    private static void start(Lane lane, Delivery delivery) {
+        delivery.attempts++;
+        Request request;
+        try {
+            request = new Request.Builder()
+                    .url(lane.url)
+                    .post(RequestBody.create(delivery.body, OutboundHttp.JSON))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            AngellaMod.LOGGER.error("Invalid webhook URL: {}", e.getMessage());
+            finish(lane, delivery, false);
+            return;
+        }
+        OutboundHttp.client().newCall(request).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    int code = response.code();
+                    if (response.isSuccessful()) {
+                        finish(lane, delivery, true);
+                    } else if (code == 429) {
+                        long retryAfter = retryAfterMs(response);
+                        if (retryAfter > MAX_RETRY_AFTER_MS) {
+                            AngellaMod.LOGGER.warn("Webhook is rate limited for {} ms, dropping message", retryAfter);
+                            finish(lane, delivery, false);
+                        } else {
+                            retry(lane, delivery, retryAfter, "rate limited");
+                        }
+                    } else if (code >= 500) {
+                        retry(lane, delivery, backoffMs(delivery.attempts), "code " + code);
+                    } else {
+                        AngellaMod.LOGGER.warn("Webhook request failed with code: {}", code);
+                        finish(lane, delivery, false);
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                retry(lane, delivery, backoffMs(delivery.attempts), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Frees the slot while waiting; the lane stays busy so nothing overtakes the message
+     */
+    private static void retry(Lane lane, Delivery delivery, long delayMs, String reason) {
+        if (delivery.attempts >= MAX_ATTEMPTS) {
+            AngellaMod.LOGGER.error("Failed to send webhook message after {} attempts: {}", delivery.attempts, reason);
+            finish(lane, delivery, false);
+            return;
+        }
+        AngellaMod.LOGGER.debug("Webhook attempt {} failed ({}), retrying in {} ms", delivery.attempts, reason, delayMs);
+        synchronized (LOCK) {
+            inFlight--;
+            lane.queue.addFirst(delivery);
+        }
+        EXECUTOR.schedule(() -> {
+            synchronized (LOCK) {
+                lane.busy = false;
+                ready.add(lane);
+            }
+            pump();
+        }, delayMs, TimeUnit.MILLISECONDS);
+        pump();
+    }
+
+    private static void finish(Lane lane, Delivery delivery, boolean delivered) {
+        synchronized (LOCK) {
+            inFlight--;
+            lane.busy = false;
+            if (lane.queue.isEmpty()) {
+                lanes.remove(lane.url);
+            } else {
+                ready.add(lane);
+            }
+        }
+        // Complete off the HTTP threads, callers may chain work on the result
+        EXECUTOR.execute(() -> delivery.result.complete(delivered));
+        pump();
+    }
+
+    /**
+     * Retry-After is in seconds (Discord sends fractions), X-RateLimit-Reset-After is the same for the route bucket
+     */
+    private static long retryAfterMs(Response response) {
+        String header = response.header("Retry-After");
+        if (header == null) {
+            header = response.header("X-RateLimit-Reset-After");
+        }
+        if (header != null) {
+            try {
+                return Math.max(0, (long) Math.ceil(Double.parseDouble(header.trim()) * 1000));
+            } catch (NumberFormatException ignored) {
+                // Not a number of seconds, fall back to backoff
+            }
+        }
+        return BASE_BACKOFF_MS;
+    }
+
+    /**
+     * 500 ms, 1 s, 2 s, ... up to 30 s, with up to 25% jitter so retries of several webhooks do not line up
+     */
+    private static long backoffMs(int attempts) {
+        long delay = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempts - 1, 16));
+        return delay + ThreadLocalRandom.current().nextLong(delay / 4 + 1);
+    }
+
+    private static final class Lane {
+        final String url;
+        final Deque<Delivery> queue = new ArrayDeque<>();
+        // A message of this webhook is in flight or waiting for its retry
+        boolean busy = false;
+
+        Lane(String url) {
+            this.url = url;
+        }
+    }
+
+    private static final class Delivery {
+        final String body;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        int attempts = 0;
+
+        Delivery(String body) {
+            this.body = body;
+        }
+    }
+}
@@ -2,12 +2,13 @@ package com.angella.events;
 
 import com.angella.AngellaMod;
 import com.angella.discord.EmbedBuilder;
-import com.angella.discord.SkinRestorerIntegration;
 import com.angella.llm.AngellaChatService;
+import com.angella.scheduler.TickScheduler;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import net.minecraft.server.network.ServerPlayerEntity;
 
 public class PlayerEventHandler {
+    private static final int JOIN_EMBED_DELAY_TICKS = 200;
     
     public static void register() {
         // Player join event - with delay to allow skin to load
@@ -15,19 +16,14 @@ public class PlayerEventHandler {
             ServerPlayerEntity player = handler.player;
             if (AngellaMod.getDiscordBot() != null && AngellaMod.getDiscordBot().isReady()) {
                 if (AngellaMod.getConfig().sendPlayerJoin) {
-                    // Clear cached head so a freshly changed skin shows up immediately
-                    SkinRestorerIntegration.clearCache(player.getName().getString());
-                    // Delay 10 seconds to allow skin to load and player to spawn
-                    server.execute(() -> {
-                        try {
-                            Thread.sleep(10000); // 10 seconds delay
-                            // Check if player is still online
-                            if (player.isAlive() && !player.isDisconnected()) {
-                                EmbedBuilder.createPlayerJoinEmbed(player, AngellaMod.getConfig())
-                                        .sendToGame();
-                            }
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
+                    // Delay 10 seconds (200 ticks) to allow skin to load and player to spawn
+                    TickScheduler.runLater(JOIN_EMBED_DELAY_TICKS, () -> {
+                        // Check if player is still online
+                        if (player.isAlive() && !player.isDisconnected()) {
+                            // Stats are read here on the server thread, avatar download and sending happen in background
+                            EmbedBuilder.PlayerJoinSnapshot snapshot = EmbedBuilder.snapshotPlayerJoin(player);
+                            TickScheduler.runAsync(() -> EmbedBuilder.createPlayerJoinEmbed(snapshot, AngellaMod.getConfig())
+                                    .sendToGame());
                         }
                     });
                 }
@@ -0,0 +1,213 @@
+package com.angella.http;
+
+import com.angella.AngellaMod;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The one HTTP client for everything the mod calls: Discord (JDA and webhooks), Mojang,
+ * SkinRestorer, avatar images and the LLM.
+ *
+ * One connection pool and one dispatcher are shared, so connections to a host are reused
+ * across features and HTTP/2 multiplexes requests over a single connection where the host
+ * supports it. Connections are pooled per host address; async calls are limited overall and per host.
+ * Every call is counted per host, see {@link #metrics()}.
+ */
+public final class OutboundHttp {
+    public static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private static final int MAX_REQUESTS = Integer.getInteger("angella.httpMaxRequests", 32);
+    private static final int MAX_REQUESTS_PER_HOST = Integer.getInteger("angella.httpMaxRequestsPerHost", 8);
+    private static final int MAX_IDLE_CONNECTIONS = Integer.getInteger("angella.httpMaxIdleConnections", 16);
+    private static final Duration KEEP_ALIVE = Duration.ofMinutes(5);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofMillis(Integer.getInteger("angella.httpConnectTimeoutMs", 5000));
+    private static final Duration READ_TIMEOUT = Duration.ofMillis(Integer.getInteger("angella.httpReadTimeoutMs", 15000));
+    private static final Duration CALL_TIMEOUT = Duration.ofMillis(Integer.getInteger("angella.httpCallTimeoutMs", 30000));
+
+    private static final Map<String, HostMetrics> metrics = new ConcurrentHashMap<>();
+    private static final OkHttpClient CLIENT = createClient();
+
+    private OutboundHttp() {
+    }
+
+    private static OkHttpClient createClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE.toMillis(), TimeUnit.MILLISECONDS))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(CONNECT_TIMEOUT)
+                .readTimeout(READ_TIMEOUT)
+                .writeTimeout(READ_TIMEOUT)
+                .callTimeout(CALL_TIMEOUT)
+                .addInterceptor(OutboundHttp::measure)
+                .build();
+    }
+
+    /**
+     * The shared client with the default timeouts
+     */
+    public static OkHttpClient client() {
+        return CLIENT;
+    }
+
+    /**
+     * A client with a different call timeout that still shares the pool, dispatcher and metrics
+     */
+    public static OkHttpClient client(Duration callTimeout) {
+        return CLIENT.newBuilder().callTimeout(callTimeout).build();
+    }
+
+    /**
+     * A client for a library that manages the client's lifecycle itself (JDA). Only the connection pool
+     * and the metrics are shared: the dispatcher is its own, so the library shutting it down on stop cannot
+     * cancel or reject webhook and Mojang calls, and timeouts of its calls are left to the library
+     */
+    public static OkHttpClient libraryClient() {
+        return CLIENT.newBuilder()
+                .dispatcher(new Dispatcher())
+                .callTimeout(Duration.ZERO)
+                .build();
+    }
+
+    /**
+     * GET returning the body as a string, or null if the response is not 2xx
+     */
+    public static String getString(String url, Duration callTimeout) throws IOException {
+        Request request = new Request.Builder().url(url).get().build();
+        try (Response response = client(callTimeout).newCall(request).execute()) {
+            ResponseBody body = response.body();
+            return response.isSuccessful() && body != null ? body.string() : null;
+        }
+    }
+
+    /**
+     * GET returning the body bytes, or null if the response is not 2xx
+     */
+    public static byte[] getBytes(String url, Duration callTimeout) throws IOException {
+        Request request = new Request.Builder().url(url).get().build();
+        try (Response response = client(callTimeout).newCall(request).execute()) {
+            ResponseBody body = response.body();
+            return response.isSuccessful() && body != null ? body.bytes() : null;
+        }
+    }
+
+    /**
+     * Per-host counters, sorted by host
+     */
+    public static Map<String, HostMetrics> metrics() {
+        return new TreeMap<>(metrics);
+    }
+
+    public static void logMetrics() {
+        for (Map.Entry<String, HostMetrics> entry : metrics().entrySet()) {
+            AngellaMod.LOGGER.info("HTTP {}: {}", entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static Response measure(Interceptor.Chain chain) throws IOException {
+        HostMetrics host = metrics.computeIfAbsent(chain.request().url().host(), h -> new HostMetrics());
+        host.inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            Response response = chain.proceed(chain.request());
+            host.record(response.code(), System.nanoTime() - start);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            host.recordFailure(System.nanoTime() - start);
+            throw e;
+        } finally {
+            host.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Counters for one host. Latency is time to response headers
+     */
+    public static final class HostMetrics {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong clientErrors = new AtomicLong();
+        private final AtomicLong serverErrors = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong inFlight = new AtomicLong();
+
+        private void record(int code, long nanos) {
+            requests.incrementAndGet();
+            if (code >= 500) {
+                serverErrors.incrementAndGet();
+            } else if (code >= 400) {
+                clientErrors.incrementAndGet();
+            }
+            addLatency(nanos);
+        }
+
+        private void recordFailure(long nanos) {
+            requests.incrementAndGet();
+            failures.incrementAndGet();
+            addLatency(nanos);
+        }
+
+        private void addLatency(long nanos) {
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getRequests() {
+            return requests.get();
+        }
+
+        public long getClientErrors() {
+            return clientErrors.get();
+        }
+
+        public long getServerErrors() {
+            return serverErrors.get();
+        }
+
+        /**
+         * Calls that got no response at all (timeout, connection error)
+         */
+        public long getFailures() {
+            return failures.get();
+        }
+
+        public long getInFlight() {
+            return inFlight.get();
+        }
+
+        public long getAverageMillis() {
+            long count = requests.get();
+            return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.get() / count);
+        }
+
+        public long getMaxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+        }
+
+        @Override
+        public String toString() {
+            return requests.get() + " requests, " + clientErrors.get() + " 4xx, " + serverErrors.get() + " 5xx, "
+                    + failures.get() + " failed, avg " + getAverageMillis() + " ms, max " + getMaxMillis() + " ms";
+        }
+    }
+}
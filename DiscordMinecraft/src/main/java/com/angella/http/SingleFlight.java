@@ -0,0 +1,68 @@
+package com.angella.http;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent lookups of the same key into one: while a lookup for a key is running,
+ * other callers for that key wait for its result instead of starting their own request.
+ * Nothing is cached; once the lookup finishes the next caller starts a new one.
+ */
+public final class SingleFlight<K, V> {
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the loader on the calling thread, or waits for the lookup already running for this key
+     */
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        try {
+            V value = loader.get();
+            own.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Starts the asynchronous call, or joins the one already running for this key.
+     * Every caller gets its own copy of the future, so cancelling it does not affect the others
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            return running.copy();
+        }
+        CompletableFuture<V> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException e) {
+            started = CompletableFuture.failedFuture(e);
+        }
+        started.whenComplete((value, error) -> {
+            inFlight.remove(key, own);
+            if (error != null) {
+                own.completeExceptionally(error);
+            } else {
+                own.complete(value);
+            }
+        });
+        return own.copy();
+    }
+}
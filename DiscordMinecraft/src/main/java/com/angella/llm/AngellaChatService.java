@@ -13,12 +13,13 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class AngellaChatService {
     private static AngellaChatService INSTANCE;
@@ -26,7 +27,10 @@ public class AngellaChatService {
     private final AngellaConfig config;
     private final HuggingFaceClient client;
     private final ChatMemoryStore memoryStore;
-    private final ExecutorService executor;
+    private final ChatRequestQueue requests;
+    private final ChatResponseCache responseCache;
+    // Cached answers are only valid for the prompt and model they were generated with
+    private final int promptVersion;
     private final Map<UUID, Long> lastAnswerAt = new ConcurrentHashMap<>();
     private final Map<UUID, Long> greetedUntil = new ConcurrentHashMap<>();
     private volatile long nextSmalltalkAt = 0L;
@@ -36,6 +40,21 @@ public class AngellaChatService {
     private static final int NAME_COLOR_START = 0xFF66CC; // pink
     private static final int NAME_COLOR_END = 0xFFD1A4;   // skin tone
     private static final long FOLLOWUP_WINDOW_MS = 90_000L;
+    // LLM pipeline: parallel requests, pending questions kept, how long a question may wait in the queue
+    // and how old it may be when the answer arrives
+    private static final int LLM_PARALLELISM = Integer.getInteger("angella.llmParallelism", 2);
+    private static final int LLM_QUEUE_CAPACITY = Integer.getInteger("angella.llmQueueCapacity", 16);
+    private static final long LLM_MAX_QUEUE_AGE_MS = Long.getLong("angella.llmMaxQueueAgeMs", 20_000L);
+    private static final long LLM_MAX_ANSWER_AGE_MS = Long.getLong("angella.llmMaxAnswerAgeMs", 45_000L);
+    private static final long SHUTDOWN_TIMEOUT_MS = 2_000L;
+    // Answers to repeated standalone questions: entries (0 disables), lifetime, near-duplicate similarity (0 disables)
+    private static final int LLM_CACHE_SIZE = Integer.getInteger("angella.llmCacheSize", 256);
+    private static final long LLM_CACHE_TTL_MS = Long.getLong("angella.llmCacheTtlMs", 6 * 60 * 60 * 1000L);
+    private static final double LLM_CACHE_SIMILARITY = Double.parseDouble(System.getProperty("angella.llmCacheSimilarity", "0.8"));
+    // Stands for the asker's name in cached answers
+    private static final String PLAYER_PLACEHOLDER = "{player}";
+    // Post the answer sentence by sentence while it is generated instead of waiting for all of it
+    private static final boolean LLM_STREAM = Boolean.parseBoolean(System.getProperty("angella.llmStream", "true"));
     private final List<String> greetings = Arrays.asList(
             "Привет, %s! Как жизнь?",
             "Йо, %s! Чем занят?",
@@ -77,11 +96,9 @@ public class AngellaChatService {
                 config.getHfMaxChars()
         );
         this.memoryStore = new ChatMemoryStore();
-        this.executor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r, "Angella-LLM");
-            t.setDaemon(true);
-            return t;
-        });
+        this.requests = new ChatRequestQueue(LLM_PARALLELISM, LLM_QUEUE_CAPACITY, LLM_MAX_QUEUE_AGE_MS);
+        this.responseCache = new ChatResponseCache(LLM_CACHE_SIZE, LLM_CACHE_TTL_MS, LLM_CACHE_SIMILARITY);
+        this.promptVersion = Objects.hash(config.getHfSystemPrompt(), config.getHfModel());
     }
 
     public static void init(AngellaConfig config) {
@@ -99,12 +116,9 @@ public class AngellaChatService {
     }
 
     public void shutdown() {
-        executor.shutdown();
-        try {
-            executor.awaitTermination(2, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        requests.shutdown(SHUTDOWN_TIMEOUT_MS);
+        // Histories are written behind; persist what is still only in memory
+        memoryStore.close();
     }
 
     public void bindServer(MinecraftServer server) {
@@ -167,14 +181,31 @@ public class AngellaChatService {
             return; // rate limit
         }
 
-        executor.submit(() -> processMessage(sender, msg));
+        // A newer question from the same player replaces one that is still waiting
+        requests.submit(sender.getUuid(), enqueuedAt -> processMessage(sender, msg, enqueuedAt));
     }
 
-    private void processMessage(ServerPlayerEntity sender, String message) {
+    private void processMessage(ServerPlayerEntity sender, String message, long enqueuedAt) {
         try {
             MinecraftServer server = sender.getServer();
             if (server == null) return;
 
+            String playerName = sender.getName().getString();
+            String userLine = playerName + ": " + message;
+
+            // A cached answer needs neither the history nor the prompt, so check it first
+            String cacheKey = ChatResponseCache.keyOf(message);
+            String cached = cacheKey != null ? responseCache.get(promptVersion, cacheKey) : null;
+            if (cached != null) {
+                if (isTooLate(sender, enqueuedAt)) {
+                    return;
+                }
+                String answer = fillPlayerName(cached, playerName);
+                server.execute(() -> sendChat(server, answer));
+                remember(sender, memoryStore.load(sender.getUuid()), userLine, answer);
+                return;
+            }
+
             List<ChatMessage> history = memoryStore.load(sender.getUuid());
             List<ChatMessage> prompt = new ArrayList<>();
 
@@ -188,34 +219,85 @@ public class AngellaChatService {
             }
 
             // Current user message
-            String userLine = sender.getName().getString() + ": " + message;
             prompt.add(new ChatMessage("user", userLine));
 
-            String answer = client.chat(prompt, config.getHfMaxNewTokens(), config.getHfTemperature());
+            boolean streamed = LLM_STREAM;
+            AtomicBoolean posted = new AtomicBoolean(false);
+            String answer;
+            if (streamed) {
+                // Players see the first sentence as soon as it is generated
+                answer = client.chatStream(prompt, config.getHfMaxNewTokens(), config.getHfTemperature(), sentence -> {
+                    if (!isTooLate(sender, enqueuedAt)) {
+                        posted.set(true);
+                        server.execute(() -> sendChat(server, sentence));
+                    }
+                });
+            } else {
+                answer = client.chat(prompt, config.getHfMaxNewTokens(), config.getHfTemperature());
+            }
             if (answer == null || answer.isEmpty()) {
                 return;
             }
-
-            // Store updated history
-            List<ChatMessage> newHistory = new ArrayList<>();
-            if (history != null) {
-                int start = Math.max(0, history.size() - config.getHfHistoryMessages());
-                newHistory.addAll(history.subList(start, history.size()));
+            if (cacheKey != null) {
+                responseCache.put(promptVersion, cacheKey, replacePlayerName(answer, playerName));
+            }
+            if (streamed ? !posted.get() : isTooLate(sender, enqueuedAt)) {
+                AngellaMod.LOGGER.debug("Discarding LLM answer for {} after {} ms",
+                        playerName, System.currentTimeMillis() - enqueuedAt);
+                return;
             }
-            newHistory.add(new ChatMessage("user", userLine));
-            newHistory.add(new ChatMessage("assistant", answer));
-            memoryStore.save(sender.getUuid(), newHistory, config.getHfHistoryMessages() * 2);
 
-            lastAnswerAt.put(sender.getUuid(), System.currentTimeMillis());
-            greetedUntil.remove(sender.getUuid());
+            remember(sender, history, userLine, answer);
 
             // Send response to chat on the server thread
-            server.execute(() -> sendChat(server, answer));
+            if (!streamed) {
+                server.execute(() -> sendChat(server, answer));
+            }
         } catch (Exception e) {
             AngellaMod.LOGGER.warn("Failed to process chat message for LLM: {}", e.getMessage());
         }
     }
 
+    /**
+     * Stores the exchange in the player's history and marks the dialog as active
+     */
+    private void remember(ServerPlayerEntity sender, List<ChatMessage> history, String userLine, String answer) {
+        List<ChatMessage> newHistory = new ArrayList<>();
+        if (history != null) {
+            int start = Math.max(0, history.size() - config.getHfHistoryMessages());
+            newHistory.addAll(history.subList(start, history.size()));
+        }
+        newHistory.add(new ChatMessage("user", userLine));
+        newHistory.add(new ChatMessage("assistant", answer));
+        memoryStore.save(sender.getUuid(), newHistory, config.getHfHistoryMessages() * 2);
+
+        lastAnswerAt.put(sender.getUuid(), System.currentTimeMillis());
+        greetedUntil.remove(sender.getUuid());
+    }
+
+    /**
+     * Swaps the asker's name for the placeholder. Only whole words are replaced,
+     * so a short name like "Max" stays intact inside "Maxim" or "максимум"
+     */
+    private static String replacePlayerName(String answer, String playerName) {
+        if (playerName == null || playerName.isEmpty()) {
+            return answer;
+        }
+        Pattern name = Pattern.compile("(?<![\\p{L}\\p{Nd}_])" + Pattern.quote(playerName) + "(?![\\p{L}\\p{Nd}_])");
+        return name.matcher(answer).replaceAll(Matcher.quoteReplacement(PLAYER_PLACEHOLDER));
+    }
+
+    private static String fillPlayerName(String cached, String playerName) {
+        return cached.replace(PLAYER_PLACEHOLDER, playerName);
+    }
+
+    /**
+     * Too late to be a reply: the player left or the chat has moved on
+     */
+    private boolean isTooLate(ServerPlayerEntity sender, long enqueuedAt) {
+        return sender.isDisconnected() || System.currentTimeMillis() - enqueuedAt > LLM_MAX_ANSWER_AGE_MS;
+    }
+
     private void sendChat(MinecraftServer server, String message) {
         Text prefix = buildGradientName("Angella");
         Text arrow = Text.literal(" » ").formatted(Formatting.GRAY);
@@ -0,0 +1,23 @@
+package com.angella.llm;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Where ChatMemoryStore keeps histories on disk. Writes come from the single
+ * store writer thread, reads may come from any thread.
+ */
+interface ChatHistoryBackend {
+    /**
+     * Returns the stored history, oldest message first, or an empty list
+     */
+    List<ChatMessage> read(UUID playerId);
+
+    /**
+     * Replaces the stored history with the given (already trimmed) one
+     */
+    void write(UUID playerId, List<ChatMessage> messages);
+
+    default void close() {
+    }
+}
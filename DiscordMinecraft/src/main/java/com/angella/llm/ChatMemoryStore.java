@@ -1,66 +1,184 @@
 package com.angella.llm;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
+import com.angella.scheduler.TickScheduler;
 import net.fabricmc.loader.api.FabricLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.lang.reflect.Type;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Conversation histories, kept in a bounded LRU cache with write-behind to disk.
+ * load/save only touch memory once a player's history is cached; changed histories
+ * are written on an interval, when they are evicted and on shutdown.
+ * All writes go through a single writer thread, so a player's history is written in order.
+ *
+ * The disk format is chosen with -Dangella.chatStore: "json" (default, one file per player)
+ * or "log" (segmented append-only log, imports the JSON files on first start).
+ */
 public class ChatMemoryStore {
     private static final Logger LOGGER = LoggerFactory.getLogger(ChatMemoryStore.class);
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-    private static final Type MESSAGE_LIST = new TypeToken<List<ChatMessage>>() {}.getType();
     private static final Path BASE_DIR = FabricLoader.getInstance().getConfigDir().resolve("angella/contexts");
+    private static final Path LOG_DIR = FabricLoader.getInstance().getConfigDir().resolve("angella/contexts-log");
+    private static final String BACKEND = System.getProperty("angella.chatStore", "json");
+    private static final int MAX_CACHED_HISTORIES = 256;
+    private static final int FLUSH_INTERVAL_TICKS = 600; // 30 seconds
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    // Access-ordered, so the eldest entry is the least recently used one
+    private final Map<UUID, CachedHistory> cache = new LinkedHashMap<>(16, 0.75f, true);
+    // Snapshots handed to the writer but not written yet; load reads them before the disk
+    private final Map<UUID, List<ChatMessage>> pendingWrites = new ConcurrentHashMap<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Angella-Chat-Store");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final ChatHistoryBackend backend;
+    private TickScheduler.ScheduledTask flushTask;
+
+    public ChatMemoryStore() {
+        this.backend = createBackend();
+        scheduleFlush();
+    }
+
+    private static ChatHistoryBackend createBackend() {
+        if ("log".equalsIgnoreCase(BACKEND)) {
+            SegmentedLogHistoryBackend log = new SegmentedLogHistoryBackend(LOG_DIR);
+            try {
+                log.open(BASE_DIR);
+                return log;
+            } catch (IOException e) {
+                LOGGER.error("Failed to open chat log, falling back to JSON files", e);
+                log.close();
+            }
+        }
+        return new JsonFileHistoryBackend(BASE_DIR);
+    }
 
     public List<ChatMessage> load(UUID playerId) {
-        ensureDir();
-        Path file = BASE_DIR.resolve(playerId.toString() + ".json");
-        if (!Files.exists(file)) {
-            return new ArrayList<>();
+        synchronized (cache) {
+            CachedHistory cached = cache.get(playerId);
+            if (cached != null) {
+                return new ArrayList<>(cached.messages);
+            }
         }
-        try (FileReader reader = new FileReader(file.toFile())) {
-            List<ChatMessage> list = GSON.fromJson(reader, MESSAGE_LIST);
-            if (list == null) {
-                return new ArrayList<>();
+        List<ChatMessage> pending = pendingWrites.get(playerId);
+        List<ChatMessage> loaded = pending != null ? pending : backend.read(playerId);
+        synchronized (cache) {
+            // Another thread may have saved in the meantime; its history is newer than the file
+            CachedHistory cached = cache.get(playerId);
+            if (cached == null) {
+                cached = new CachedHistory(Collections.unmodifiableList(new ArrayList<>(loaded)));
+                put(playerId, cached);
             }
-            return new ArrayList<>(list);
-        } catch (IOException e) {
-            LOGGER.warn("Failed to load context for {}: {}", playerId, e.getMessage());
-            return new ArrayList<>();
+            return new ArrayList<>(cached.messages);
         }
     }
 
     public void save(UUID playerId, List<ChatMessage> history, int limit) {
-        ensureDir();
-        Path file = BASE_DIR.resolve(playerId.toString() + ".json");
-        List<ChatMessage> trimmed = trim(history, limit);
-        try (FileWriter writer = new FileWriter(file.toFile())) {
-            GSON.toJson(trimmed, writer);
-        } catch (IOException e) {
-            LOGGER.warn("Failed to save context for {}: {}", playerId, e.getMessage());
+        List<ChatMessage> trimmed = Collections.unmodifiableList(trim(history, limit));
+        synchronized (cache) {
+            CachedHistory cached = new CachedHistory(trimmed);
+            cached.dirty = true;
+            put(playerId, cached);
+        }
+    }
+
+    /**
+     * Hands every changed history to the writer thread
+     */
+    public void flush() {
+        synchronized (cache) {
+            for (Map.Entry<UUID, CachedHistory> entry : cache.entrySet()) {
+                CachedHistory cached = entry.getValue();
+                if (cached.dirty) {
+                    cached.dirty = false;
+                    scheduleWrite(entry.getKey(), cached.messages);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes all changed histories and stops the writer. Safe to call more than once
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (flushTask != null) {
+            flushTask.cancel();
         }
+        flush();
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("Timed out writing {} chat contexts", pendingWrites.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        backend.close();
     }
 
-    private void ensureDir() {
+    private void scheduleFlush() {
+        flushTask = TickScheduler.runLater(FLUSH_INTERVAL_TICKS, () -> {
+            if (closed.get()) {
+                return;
+            }
+            flush();
+            scheduleFlush();
+        });
+    }
+
+    /**
+     * Must be called while holding the cache lock
+     */
+    private void put(UUID playerId, CachedHistory cached) {
+        cache.put(playerId, cached);
+        if (cache.size() <= MAX_CACHED_HISTORIES) {
+            return;
+        }
+        Iterator<Map.Entry<UUID, CachedHistory>> iterator = cache.entrySet().iterator();
+        Map.Entry<UUID, CachedHistory> evicted = iterator.next();
+        iterator.remove();
+        if (evicted.getValue().dirty) {
+            scheduleWrite(evicted.getKey(), evicted.getValue().messages);
+        }
+    }
+
+    private void scheduleWrite(UUID playerId, List<ChatMessage> messages) {
+        pendingWrites.put(playerId, messages);
         try {
-            Files.createDirectories(BASE_DIR);
-        } catch (IOException e) {
-            LOGGER.warn("Failed to create angella context dir: {}", e.getMessage());
+            writer.execute(() -> writeToDisk(playerId, messages));
+        } catch (RejectedExecutionException e) {
+            // Saved after close(): the writer is gone, write right here
+            writeToDisk(playerId, messages);
         }
     }
 
+    private void writeToDisk(UUID playerId, List<ChatMessage> messages) {
+        backend.write(playerId, messages);
+        // A newer snapshot may have been queued while this one was being written
+        pendingWrites.remove(playerId, messages);
+    }
+
     private List<ChatMessage> trim(List<ChatMessage> list, int limit) {
         if (list == null || list.isEmpty()) {
             return Collections.emptyList();
@@ -70,7 +188,13 @@ public class ChatMemoryStore {
         }
         return new ArrayList<>(list.subList(list.size() - limit, list.size()));
     }
-}
-
 
+    private static final class CachedHistory {
+        final List<ChatMessage> messages;
+        boolean dirty = false;
 
+        CachedHistory(List<ChatMessage> messages) {
+            this.messages = messages;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.angella.llm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pending LLM questions, answered by a fixed number of worker threads.
+ *
+ * - One pending question per player: a new question replaces the one still waiting.
+ * - The queue is bounded; when it is full the oldest question is dropped.
+ * - Questions that waited longer than maxQueueAgeMs are dropped instead of being sent.
+ * - A player's questions never run in parallel, so their history is updated in order.
+ */
+class ChatRequestQueue {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatRequestQueue.class);
+
+    /**
+     * Work for one question. enqueuedAt is when the player asked, to judge whether the answer is still relevant
+     */
+    interface Request {
+        void run(long enqueuedAt);
+    }
+
+    private final int capacity;
+    private final long maxQueueAgeMs;
+    // Insertion order = age, the first entry is the oldest
+    private final LinkedHashMap<UUID, Pending> pending = new LinkedHashMap<>();
+    private final Set<UUID> inFlight = new HashSet<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private boolean stopped = false;
+
+    ChatRequestQueue(int parallelism, int capacity, long maxQueueAgeMs) {
+        this.capacity = Math.max(1, capacity);
+        this.maxQueueAgeMs = maxQueueAgeMs;
+        for (int i = 0; i < Math.max(1, parallelism); i++) {
+            Thread worker = new Thread(this::runWorker, "Angella-LLM-" + (i + 1));
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    synchronized void submit(UUID playerId, Request request) {
+        if (stopped) {
+            return;
+        }
+        if (pending.remove(playerId) != null) {
+            LOGGER.debug("Replaced pending LLM question of {}", playerId);
+        } else if (pending.size() >= capacity) {
+            Iterator<UUID> oldest = pending.keySet().iterator();
+            LOGGER.debug("LLM queue is full, dropping question of {}", oldest.next());
+            oldest.remove();
+        }
+        pending.put(playerId, new Pending(playerId, request, System.currentTimeMillis()));
+        notifyAll();
+    }
+
+    /**
+     * Drops pending questions and waits up to timeoutMs for the ones being answered
+     */
+    void shutdown(long timeoutMs) {
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            pending.clear();
+            notifyAll();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        for (Thread worker : workers) {
+            long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (left <= 0) {
+                break;
+            }
+            try {
+                worker.join(left);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void runWorker() {
+        while (true) {
+            Pending next;
+            try {
+                next = take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (next == null) {
+                return;
+            }
+            try {
+                next.request.run(next.enqueuedAt);
+            } catch (Exception e) {
+                LOGGER.warn("LLM request failed: {}", e.getMessage());
+            } finally {
+                finished(next.playerId);
+            }
+        }
+    }
+
+    /**
+     * The oldest fresh question of a player who is not being answered right now, or null after shutdown
+     */
+    private synchronized Pending take() throws InterruptedException {
+        while (!stopped) {
+            long now = System.currentTimeMillis();
+            Iterator<Pending> iterator = pending.values().iterator();
+            while (iterator.hasNext()) {
+                Pending candidate = iterator.next();
+                if (now - candidate.enqueuedAt > maxQueueAgeMs) {
+                    iterator.remove();
+                    LOGGER.debug("Dropping LLM question of {} after {} ms in queue", candidate.playerId, now - candidate.enqueuedAt);
+                    continue;
+                }
+                if (!inFlight.contains(candidate.playerId)) {
+                    iterator.remove();
+                    inFlight.add(candidate.playerId);
+                    return candidate;
+                }
+            }
+            // Wake up in time to expire what is still waiting
+            wait(pending.isEmpty() ? 0 : maxQueueAgeMs);
+        }
+        return null;
+    }
+
+    private synchronized void finished(UUID playerId) {
+        inFlight.remove(playerId);
+        if (pending.containsKey(playerId)) {
+            notifyAll();
+        }
+    }
+
+    private static final class Pending {
+        final UUID playerId;
+        final Request request;
+        final long enqueuedAt;
+
+        Pending(UUID playerId, Request request, long enqueuedAt) {
+            this.playerId = playerId;
+            this.request = request;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
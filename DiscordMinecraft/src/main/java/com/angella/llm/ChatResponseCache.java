@@ -0,0 +1,158 @@
+package com.angella.llm;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Answers to standalone questions ("как найти алмазы?"), reused when the same question
+ * comes again, so common questions skip the LLM round-trip.
+ *
+ * The key is the normalized question (case, punctuation, ё/е and the bot's name do not matter)
+ * plus the prompt version, so changing the system prompt or the model drops old answers.
+ * Entries live for ttlMs, the least recently used ones are evicted above maxEntries.
+ * If similarity is above 0, a question whose word set is that close (Jaccard) to a cached one
+ * also counts as a hit.
+ */
+class ChatResponseCache {
+    // Questions shorter than this are too vague to answer from cache ("а ты?", "почему?")
+    private static final int MIN_TOKENS = 2;
+    // Near-duplicate matching needs a bit more words to be safe
+    private static final int MIN_SIMILAR_TOKENS = 3;
+    private static final List<String> QUESTION_WORDS = Arrays.asList(
+            "как", "где", "что", "чем", "зачем", "почему", "сколько", "какой", "какая", "какие", "когда", "можно",
+            "how", "where", "what", "why", "which", "when", "can");
+    // Words that point back into the conversation; a question made only of them depends on the history
+    private static final List<String> CONTEXT_WORDS = Arrays.asList(
+            "это", "этот", "эта", "эти", "то", "тот", "ты", "тебя", "тебе", "он", "она", "оно", "они", "его", "ее", "их",
+            "там", "тут", "так", "дальше", "потом", "еще", "it", "this", "that", "you", "then", "there");
+
+    private final int maxEntries;
+    private final long ttlMs;
+    private final double similarity;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    ChatResponseCache(int maxEntries, long ttlMs, double similarity) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.similarity = similarity;
+    }
+
+    /**
+     * Normalized key of a question worth caching, or null for chatter and follow-ups
+     * that only make sense with the conversation history
+     */
+    static String keyOf(String message) {
+        String lower = message.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        String[] words = lower.split("[^\\p{L}\\p{Nd}]+");
+        StringBuilder key = new StringBuilder();
+        int tokens = 0;
+        int meaningful = 0;
+        boolean questionWord = false;
+        for (String word : words) {
+            if (word.isEmpty() || word.startsWith("ангел") || word.equals("angella")) {
+                continue;
+            }
+            if (tokens == 0 && QUESTION_WORDS.contains(word)) {
+                questionWord = true;
+            }
+            if (key.length() > 0) {
+                key.append(' ');
+            }
+            key.append(word);
+            tokens++;
+            if (word.length() > 2 && !QUESTION_WORDS.contains(word) && !CONTEXT_WORDS.contains(word)) {
+                meaningful++;
+            }
+        }
+        if (tokens < MIN_TOKENS || meaningful == 0 || !(questionWord || message.contains("?"))) {
+            return null;
+        }
+        return key.toString();
+    }
+
+    synchronized String get(int promptVersion, String key) {
+        if (maxEntries <= 0) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Entry exact = entries.get(promptVersion + ":" + key);
+        if (exact != null) {
+            if (now - exact.createdAt <= ttlMs) {
+                return exact.answer;
+            }
+            entries.remove(promptVersion + ":" + key);
+        }
+        if (similarity <= 0) {
+            return null;
+        }
+        Set<String> tokens = tokens(key);
+        if (tokens.size() < MIN_SIMILAR_TOKENS) {
+            return null;
+        }
+        Entry best = null;
+        double bestScore = similarity;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (now - entry.createdAt > ttlMs) {
+                iterator.remove();
+                continue;
+            }
+            if (entry.promptVersion != promptVersion || entry.tokens.size() < MIN_SIMILAR_TOKENS) {
+                continue;
+            }
+            double score = jaccard(tokens, entry.tokens);
+            if (score >= bestScore) {
+                best = entry;
+                bestScore = score;
+            }
+        }
+        return best != null ? best.answer : null;
+    }
+
+    synchronized void put(int promptVersion, String key, String answer) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        entries.put(promptVersion + ":" + key, new Entry(promptVersion, tokens(key), answer, System.currentTimeMillis()));
+        if (entries.size() > maxEntries) {
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private static Set<String> tokens(String key) {
+        return new HashSet<>(Arrays.asList(key.split(" ")));
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        int common = 0;
+        for (String token : a) {
+            if (b.contains(token)) {
+                common++;
+            }
+        }
+        return (double) common / (a.size() + b.size() - common);
+    }
+
+    private static final class Entry {
+        final int promptVersion;
+        final Set<String> tokens;
+        final String answer;
+        final long createdAt;
+
+        Entry(int promptVersion, Set<String> tokens, String answer, long createdAt) {
+            this.promptVersion = promptVersion;
+            this.tokens = tokens;
+            this.answer = answer;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -4,7 +4,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
-import okhttp3.MediaType;
+import com.angella.http.OutboundHttp;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
@@ -12,13 +12,14 @@ import okhttp3.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class HuggingFaceClient {
     private static final Logger LOGGER = LoggerFactory.getLogger(HuggingFaceClient.class);
-    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
 
     private final OkHttpClient httpClient;
     private final String baseUrl;
@@ -31,33 +32,13 @@ public class HuggingFaceClient {
         this.model = model;
         this.token = token;
         this.maxChars = maxChars;
-        this.httpClient = new OkHttpClient.Builder()
-                .callTimeout(Duration.ofMillis(timeoutMs))
-                .build();
+        // Shares connections with the rest of the mod, only the call timeout is the LLM's own
+        this.httpClient = OutboundHttp.client(Duration.ofMillis(timeoutMs));
     }
 
     public String chat(List<ChatMessage> messages, int maxNewTokens, float temperature) {
         try {
-            JsonObject requestBody = new JsonObject();
-            requestBody.addProperty("model", model);
-            requestBody.addProperty("temperature", temperature);
-            requestBody.addProperty("max_tokens", maxNewTokens);
-
-            JsonArray msgs = new JsonArray();
-            for (ChatMessage m : messages) {
-                JsonObject obj = new JsonObject();
-                obj.addProperty("role", m.getRole());
-                obj.addProperty("content", m.getContent());
-                msgs.add(obj);
-            }
-            requestBody.add("messages", msgs);
-
-            Request request = new Request.Builder()
-                    .url(baseUrl + "/chat/completions")
-                    .addHeader("Authorization", "Bearer " + token)
-                    .post(RequestBody.create(requestBody.toString(), JSON))
-                    .build();
-
+            Request request = buildRequest(messages, maxNewTokens, temperature, false);
             try (Response response = httpClient.newCall(request).execute()) {
                 if (!response.isSuccessful()) {
                     LOGGER.warn("HF chat failed: HTTP {} {}", response.code(), response.message());
@@ -79,6 +60,64 @@ public class HuggingFaceClient {
         }
     }
 
+    /**
+     * Same as chat, but with "stream": true: sentences are passed to onSentence as soon as
+     * they are generated. Returns the whole answer, or null on error (sentences already
+     * passed on stay sent)
+     */
+    public String chatStream(List<ChatMessage> messages, int maxNewTokens, float temperature, Consumer<String> onSentence) {
+        try {
+            Request request = buildRequest(messages, maxNewTokens, temperature, true);
+            try (Response response = httpClient.newCall(request).execute()) {
+                if (!response.isSuccessful()) {
+                    LOGGER.warn("HF chat stream failed: HTTP {} {}", response.code(), response.message());
+                    return null;
+                }
+                if (response.body() == null) {
+                    LOGGER.warn("HF chat stream failed: empty body");
+                    return null;
+                }
+                try (BufferedReader events = new BufferedReader(response.body().charStream())) {
+                    return StreamingCompletion.read(events, maxChars, onSentence);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("HF chat stream IO error: {}", e.getMessage());
+            return null;
+        } catch (Exception e) {
+            LOGGER.warn("HF chat stream error: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Request buildRequest(List<ChatMessage> messages, int maxNewTokens, float temperature, boolean stream) {
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("model", model);
+        requestBody.addProperty("temperature", temperature);
+        requestBody.addProperty("max_tokens", maxNewTokens);
+        if (stream) {
+            requestBody.addProperty("stream", true);
+        }
+
+        JsonArray msgs = new JsonArray();
+        for (ChatMessage m : messages) {
+            JsonObject obj = new JsonObject();
+            obj.addProperty("role", m.getRole());
+            obj.addProperty("content", m.getContent());
+            msgs.add(obj);
+        }
+        requestBody.add("messages", msgs);
+
+        Request.Builder builder = new Request.Builder()
+                .url(baseUrl + "/chat/completions")
+                .addHeader("Authorization", "Bearer " + token)
+                .post(RequestBody.create(requestBody.toString(), OutboundHttp.JSON));
+        if (stream) {
+            builder.addHeader("Accept", "text/event-stream");
+        }
+        return builder.build();
+    }
+
     private String parseResponse(String body) {
         try {
             JsonObject root = JsonParser.parseString(body).getAsJsonObject();
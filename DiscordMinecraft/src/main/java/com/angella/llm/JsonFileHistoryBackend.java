@@ -0,0 +1,78 @@
+package com.angella.llm;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One pretty-printed JSON file per player
+ */
+class JsonFileHistoryBackend implements ChatHistoryBackend {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JsonFileHistoryBackend.class);
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final Type MESSAGE_LIST = new TypeToken<List<ChatMessage>>() {}.getType();
+
+    private final Path baseDir;
+    private volatile boolean dirInitialized = false;
+
+    JsonFileHistoryBackend(Path baseDir) {
+        this.baseDir = baseDir;
+    }
+
+    @Override
+    public List<ChatMessage> read(UUID playerId) {
+        ensureDir();
+        return readFile(baseDir.resolve(playerId.toString() + ".json"));
+    }
+
+    @Override
+    public void write(UUID playerId, List<ChatMessage> messages) {
+        ensureDir();
+        Path file = baseDir.resolve(playerId.toString() + ".json");
+        try (FileWriter writer = new FileWriter(file.toFile())) {
+            GSON.toJson(messages, writer);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to save context for {}: {}", playerId, e.getMessage());
+        }
+    }
+
+    static List<ChatMessage> readFile(Path file) {
+        if (!Files.exists(file)) {
+            return new ArrayList<>();
+        }
+        try (FileReader reader = new FileReader(file.toFile())) {
+            List<ChatMessage> list = GSON.fromJson(reader, MESSAGE_LIST);
+            if (list == null) {
+                return new ArrayList<>();
+            }
+            return new ArrayList<>(list);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to load context from {}: {}", file.getFileName(), e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private void ensureDir() {
+        if (dirInitialized) {
+            return;
+        }
+        try {
+            Files.createDirectories(baseDir);
+            dirInitialized = true;
+        } catch (IOException e) {
+            LOGGER.warn("Failed to create angella context dir: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,562 @@
+package com.angella.llm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Histories of all players in a few append-only segment files instead of one JSON file per player.
+ *
+ * A save appends only the messages the log does not have yet, so per-message I/O is a sequential
+ * append. An in-memory index keeps, per player, where the last N records are; sealed segments are
+ * read through memory mapping. When most of the log is dead (trimmed or replaced messages),
+ * the live records are copied into one new segment, which then replaces all older ones.
+ *
+ * Record: [int payload length][int CRC32 of payload][payload]. A record with a bad length
+ * or checksum at the end of the last segment is a torn write and is cut off on startup.
+ */
+class SegmentedLogHistoryBackend implements ChatHistoryBackend {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SegmentedLogHistoryBackend.class);
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String COMPACTING_SUFFIX = ".compacting";
+    private static final long SEGMENT_MAX_BYTES = 8L << 20;
+    // Compact once the log is at least this big and no more than half of it is live
+    private static final long COMPACT_MIN_BYTES = 16L << 20;
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+
+    // Payload types
+    private static final byte TYPE_MESSAGE = 1; // uuid, messages kept after this one, timestamp, role, content
+    private static final byte TYPE_RESET = 2;   // uuid: forget the player's history
+    private static final byte TYPE_BASE = 3;    // first record of a compacted segment: older segments are obsolete
+
+    private final Path dir;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final Map<UUID, PlayerLog> index = new HashMap<>();
+    private Segment active;
+    private long totalBytes = 0;
+    private long liveBytes = 0;
+
+    SegmentedLogHistoryBackend(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Replays the log into the index. Histories from the JSON backend are imported on first start
+     */
+    void open(Path legacyJsonDir) throws IOException {
+        lock.writeLock().lock();
+        try {
+            Files.createDirectories(dir);
+            List<Long> ids = listSegments();
+            if (ids.isEmpty()) {
+                active = createSegment(1, dir.resolve(segmentName(1)));
+                importLegacy(legacyJsonDir);
+            } else {
+                replay(ids);
+                long next = ids.get(ids.size() - 1) + 1;
+                active = createSegment(next, dir.resolve(segmentName(next)));
+            }
+            LOGGER.info("Chat log: {} players, {} segments, {} KiB live of {} KiB",
+                    index.size(), segments.size(), liveBytes >> 10, totalBytes >> 10);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ChatMessage> read(UUID playerId) {
+        lock.readLock().lock();
+        try {
+            PlayerLog log = index.get(playerId);
+            if (log == null) {
+                return new ArrayList<>();
+            }
+            List<ChatMessage> messages = new ArrayList<>(log.records.size());
+            for (RecordRef ref : log.records) {
+                messages.add(decodeMessage(readPayload(ref)));
+            }
+            return messages;
+        } catch (IOException e) {
+            LOGGER.warn("Failed to read chat log for {}: {}", playerId, e.getMessage());
+            return new ArrayList<>();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void write(UUID playerId, List<ChatMessage> messages) {
+        lock.writeLock().lock();
+        try {
+            if (active == null) {
+                LOGGER.warn("Chat log is closed, dropping context for {}", playerId);
+                return;
+            }
+            PlayerLog log = index.computeIfAbsent(playerId, uuid -> new PlayerLog());
+            int from = 0;
+            if (log.last != null) {
+                // The new history is normally the stored one minus some old messages plus new ones
+                int known = lastIndexOf(messages, log.last);
+                if (known >= 0) {
+                    from = known + 1;
+                } else {
+                    append(encodeReset(playerId));
+                    dropAll(log);
+                }
+            }
+            int keep = messages.size();
+            for (int i = from; i < messages.size(); i++) {
+                RecordRef ref = append(encodeMessage(playerId, keep, messages.get(i)));
+                log.records.addLast(ref);
+                liveBytes += ref.length;
+            }
+            trim(log, keep);
+            log.last = messages.isEmpty() ? null : messages.get(messages.size() - 1);
+            if (log.records.isEmpty()) {
+                index.remove(playerId);
+            }
+            if (totalBytes >= COMPACT_MIN_BYTES && liveBytes * 2 <= totalBytes) {
+                compact();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to append chat log for {}: {}", playerId, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (active != null) {
+                active.channel.force(true);
+            }
+            for (Segment segment : segments.values()) {
+                segment.channel.close();
+            }
+            segments.clear();
+            active = null;
+        } catch (IOException e) {
+            LOGGER.warn("Failed to close chat log: {}", e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- Appending ---
+
+    private RecordRef append(ByteBuffer payload) throws IOException {
+        int length = payload.remaining();
+        if (active.size + HEADER_BYTES + length > SEGMENT_MAX_BYTES && active.size > 0) {
+            roll();
+        }
+        return active.append(frame(payload));
+    }
+
+    private void roll() throws IOException {
+        active.channel.force(true);
+        active.seal();
+        long id = active.id + 1;
+        active = createSegment(id, dir.resolve(segmentName(id)));
+    }
+
+    private static ByteBuffer frame(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.remaining());
+        record.putInt(payload.remaining()).putInt((int) crc.getValue()).put(payload.duplicate());
+        record.flip();
+        return record;
+    }
+
+    private void trim(PlayerLog log, int keep) {
+        while (log.records.size() > keep) {
+            liveBytes -= log.records.pollFirst().length;
+        }
+    }
+
+    private void dropAll(PlayerLog log) {
+        trim(log, 0);
+        log.last = null;
+    }
+
+    private static int lastIndexOf(List<ChatMessage> messages, ChatMessage message) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (sameMessage(messages.get(i), message)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean sameMessage(ChatMessage a, ChatMessage b) {
+        return a.getTimestamp() == b.getTimestamp()
+                && String.valueOf(a.getRole()).equals(String.valueOf(b.getRole()))
+                && String.valueOf(a.getContent()).equals(String.valueOf(b.getContent()));
+    }
+
+    // --- Compaction ---
+
+    /**
+     * Copies live records into a new segment that starts with a BASE record, then drops the older segments.
+     * The copy is written under a temporary name and renamed only when complete, so a crash
+     * leaves either the old segments or the finished copy
+     */
+    private void compact() throws IOException {
+        long baseId = active.id + 1;
+        Path tmp = dir.resolve(baseId + COMPACTING_SUFFIX);
+        Segment base = createSegment(baseId, tmp);
+        Map<UUID, ArrayDeque<RecordRef>> copied = new HashMap<>();
+        long copiedBytes = 0;
+        try {
+            base.append(frame(ByteBuffer.wrap(new byte[]{TYPE_BASE})));
+            for (Map.Entry<UUID, PlayerLog> entry : index.entrySet()) {
+                ArrayDeque<RecordRef> refs = new ArrayDeque<>(entry.getValue().records.size());
+                for (RecordRef ref : entry.getValue().records) {
+                    RecordRef moved = base.append(frame(readPayload(ref)));
+                    refs.addLast(moved);
+                    copiedBytes += moved.length;
+                }
+                copied.put(entry.getKey(), refs);
+            }
+            base.channel.force(true);
+            base.channel.close();
+            moveAtomically(tmp, dir.resolve(segmentName(baseId)));
+        } catch (IOException e) {
+            base.channel.close();
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        long before = totalBytes;
+        active.channel.force(true);
+        for (Segment segment : segments.values()) {
+            segment.channel.close();
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                // A mapped file may not be deletable on Windows; the BASE record makes replay skip it
+                LOGGER.debug("Failed to delete chat log segment {}: {}", segment.path.getFileName(), e.getMessage());
+            }
+        }
+        segments.clear();
+        totalBytes = 0;
+
+        Segment compacted = createSegment(baseId, dir.resolve(segmentName(baseId)));
+        compacted.seal();
+        for (Map.Entry<UUID, ArrayDeque<RecordRef>> entry : copied.entrySet()) {
+            ArrayDeque<RecordRef> refs = index.get(entry.getKey()).records;
+            refs.clear();
+            for (RecordRef ref : entry.getValue()) {
+                refs.addLast(new RecordRef(compacted, ref.offset, ref.length));
+            }
+        }
+        liveBytes = copiedBytes;
+        active = createSegment(baseId + 1, dir.resolve(segmentName(baseId + 1)));
+        LOGGER.info("Compacted chat log from {} KiB to {} KiB", before >> 10, totalBytes >> 10);
+    }
+
+    // --- Replay ---
+
+    private void replay(List<Long> ids) throws IOException {
+        // Everything before the newest compacted segment is obsolete
+        int start = 0;
+        for (int i = ids.size() - 1; i > 0 && start == 0; i--) {
+            if (startsWithBase(dir.resolve(segmentName(ids.get(i))))) {
+                start = i;
+            }
+        }
+        for (int i = 0; i < start; i++) {
+            Files.deleteIfExists(dir.resolve(segmentName(ids.get(i))));
+        }
+        for (int i = start; i < ids.size(); i++) {
+            long id = ids.get(i);
+            Path path = dir.resolve(segmentName(id));
+            if (Files.size(path) == 0 && ids.size() > 1) {
+                // Active segment of an earlier run that got no writes
+                Files.delete(path);
+                continue;
+            }
+            Segment segment = createSegment(id, path);
+            replaySegment(segment, i == ids.size() - 1);
+            segment.seal();
+        }
+    }
+
+    private void replaySegment(Segment segment, boolean last) throws IOException {
+        MappedByteBuffer mapped = segment.map();
+        long offset = 0;
+        while (offset + HEADER_BYTES <= segment.size) {
+            int length = mapped.getInt((int) offset);
+            int crc = mapped.getInt((int) offset + 4);
+            if (length <= 0 || length > MAX_RECORD_BYTES || offset + HEADER_BYTES + length > segment.size) {
+                break;
+            }
+            ByteBuffer payload = mapped.duplicate();
+            payload.position((int) offset + HEADER_BYTES).limit((int) offset + HEADER_BYTES + length);
+            CRC32 check = new CRC32();
+            check.update(payload.duplicate());
+            if ((int) check.getValue() != crc) {
+                break;
+            }
+            applyRecord(new RecordRef(segment, offset, HEADER_BYTES + length), payload.slice());
+            offset += HEADER_BYTES + length;
+        }
+        if (offset < segment.size) {
+            if (last) {
+                LOGGER.warn("Chat log segment {} ends with an incomplete record, cutting it off", segment.path.getFileName());
+                totalBytes -= segment.size - offset;
+                segment.size = offset;
+                segment.mapped = null;
+                try {
+                    segment.channel.truncate(offset);
+                } catch (IOException e) {
+                    // Still mapped (Windows); the tail is past size and never read
+                    LOGGER.debug("Failed to truncate chat log segment {}: {}", segment.path.getFileName(), e.getMessage());
+                }
+            } else {
+                LOGGER.warn("Chat log segment {} is damaged after offset {}", segment.path.getFileName(), offset);
+            }
+        }
+    }
+
+    private void applyRecord(RecordRef ref, ByteBuffer payload) {
+        byte type = payload.get(0);
+        if (type == TYPE_BASE) {
+            return;
+        }
+        UUID playerId = new UUID(payload.getLong(1), payload.getLong(9));
+        PlayerLog log = index.computeIfAbsent(playerId, uuid -> new PlayerLog());
+        if (type == TYPE_RESET) {
+            dropAll(log);
+        } else if (type == TYPE_MESSAGE) {
+            log.records.addLast(ref);
+            liveBytes += ref.length;
+            trim(log, payload.getInt(17));
+            log.last = decodeMessage(payload);
+        }
+        if (log.records.isEmpty()) {
+            index.remove(playerId);
+        }
+    }
+
+    private boolean startsWithBase(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES + 1);
+            while (head.hasRemaining() && channel.read(head) > 0) {
+                // read the first record header and type
+            }
+            return !head.hasRemaining() && head.getInt(0) == 1 && head.get(HEADER_BYTES) == TYPE_BASE;
+        }
+    }
+
+    private void importLegacy(Path legacyJsonDir) throws IOException {
+        if (legacyJsonDir == null || !Files.isDirectory(legacyJsonDir)) {
+            return;
+        }
+        int imported = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(legacyJsonDir, "*.json")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                UUID playerId;
+                try {
+                    playerId = UUID.fromString(name.substring(0, name.length() - ".json".length()));
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                List<ChatMessage> messages = JsonFileHistoryBackend.readFile(file);
+                if (!messages.isEmpty()) {
+                    write(playerId, messages);
+                    imported++;
+                }
+            }
+        }
+        if (imported > 0) {
+            active.channel.force(true);
+            LOGGER.info("Imported {} chat contexts from {}", imported, legacyJsonDir);
+        }
+    }
+
+    // --- Segments and records ---
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(COMPACTING_SUFFIX)) {
+                    Files.deleteIfExists(file); // compaction did not finish
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        ids.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException e) {
+                        LOGGER.warn("Ignoring unexpected file {} in chat log", name);
+                    }
+                }
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private Segment createSegment(long id, Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(id, path, channel, channel.size());
+        if (path.getFileName().toString().endsWith(SEGMENT_SUFFIX)) {
+            segments.put(id, segment);
+            totalBytes += segment.size;
+        }
+        return segment;
+    }
+
+    private ByteBuffer readPayload(RecordRef ref) throws IOException {
+        ByteBuffer record = ref.segment.read(ref.offset, ref.length);
+        record.position(HEADER_BYTES);
+        return record.slice();
+    }
+
+    private static String segmentName(long id) {
+        return String.format("%010d%s", id, SEGMENT_SUFFIX);
+    }
+
+    private static void moveAtomically(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static ByteBuffer encodeReset(UUID playerId) {
+        ByteBuffer payload = ByteBuffer.allocate(17);
+        payload.put(TYPE_RESET).putLong(playerId.getMostSignificantBits()).putLong(playerId.getLeastSignificantBits());
+        payload.flip();
+        return payload;
+    }
+
+    private static ByteBuffer encodeMessage(UUID playerId, int keep, ChatMessage message) {
+        byte[] role = String.valueOf(message.getRole()).getBytes(StandardCharsets.UTF_8);
+        byte[] content = String.valueOf(message.getContent()).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(1 + 16 + 4 + 8 + 4 + role.length + 4 + content.length);
+        payload.put(TYPE_MESSAGE)
+                .putLong(playerId.getMostSignificantBits()).putLong(playerId.getLeastSignificantBits())
+                .putInt(keep)
+                .putLong(message.getTimestamp())
+                .putInt(role.length).put(role)
+                .putInt(content.length).put(content);
+        payload.flip();
+        return payload;
+    }
+
+    private static ChatMessage decodeMessage(ByteBuffer payload) {
+        ByteBuffer buffer = payload.duplicate();
+        buffer.position(21); // type, uuid, keep
+        long timestamp = buffer.getLong();
+        byte[] role = new byte[buffer.getInt()];
+        buffer.get(role);
+        byte[] content = new byte[buffer.getInt()];
+        buffer.get(content);
+        return new ChatMessage(new String(role, StandardCharsets.UTF_8), new String(content, StandardCharsets.UTF_8), timestamp);
+    }
+
+    private final class Segment {
+        final long id;
+        final Path path;
+        final FileChannel channel;
+        long size;
+        boolean sealed = false;
+        MappedByteBuffer mapped;
+
+        Segment(long id, Path path, FileChannel channel, long size) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.size = size;
+        }
+
+        RecordRef append(ByteBuffer record) throws IOException {
+            long offset = size;
+            int length = record.remaining();
+            long position = offset;
+            while (record.hasRemaining()) {
+                position += channel.write(record, position);
+            }
+            size = position;
+            if (segments.get(id) == this) {
+                totalBytes += length;
+            }
+            return new RecordRef(this, offset, length);
+        }
+
+        void seal() {
+            sealed = true;
+        }
+
+        MappedByteBuffer map() throws IOException {
+            if (mapped == null) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            return mapped;
+        }
+
+        /**
+         * Sealed segments never change and are read from the mapping, the active one with a positional read
+         */
+        ByteBuffer read(long offset, int length) throws IOException {
+            if (sealed) {
+                ByteBuffer record = map().duplicate();
+                record.position((int) offset).limit((int) offset + length);
+                return record.slice();
+            }
+            ByteBuffer record = ByteBuffer.allocate(length);
+            while (record.hasRemaining()) {
+                if (channel.read(record, offset + record.position()) < 0) {
+                    throw new IOException("Unexpected end of chat log segment " + path.getFileName());
+                }
+            }
+            record.flip();
+            return record;
+        }
+    }
+
+    private static final class RecordRef {
+        final Segment segment;
+        final long offset;
+        final int length;
+
+        RecordRef(Segment segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static final class PlayerLog {
+        final ArrayDeque<RecordRef> records = new ArrayDeque<>();
+        ChatMessage last;
+    }
+}
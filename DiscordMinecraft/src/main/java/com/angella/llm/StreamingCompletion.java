@@ -0,0 +1,121 @@
+package com.angella.llm;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Reads a "stream": true chat completion (server-sent events) chunk by chunk
+ * and hands the text out sentence by sentence as it arrives.
+ */
+final class StreamingCompletion {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamingCompletion.class);
+    private static final String DATA_PREFIX = "data:";
+    private static final String DONE = "[DONE]";
+    // A sentence without punctuation is still sent once it gets this long
+    private static final int MAX_SENTENCE_CHARS = 200;
+
+    private final int maxChars;
+    private final Consumer<String> onSentence;
+    private final StringBuilder full = new StringBuilder();
+    private final StringBuilder sentence = new StringBuilder();
+
+    private StreamingCompletion(int maxChars, Consumer<String> onSentence) {
+        this.maxChars = maxChars;
+        this.onSentence = onSentence;
+    }
+
+    /**
+     * Reads the event stream to the end, [DONE] or maxChars, whichever comes first.
+     * Returns the whole answer, trimmed, or null if it is empty
+     */
+    static String read(BufferedReader events, int maxChars, Consumer<String> onSentence) throws IOException {
+        StreamingCompletion completion = new StreamingCompletion(maxChars, onSentence);
+        String line;
+        while ((line = events.readLine()) != null) {
+            // Other SSE fields (event:, id:, comments) carry nothing we need
+            if (!line.startsWith(DATA_PREFIX)) {
+                continue;
+            }
+            String data = line.substring(DATA_PREFIX.length()).trim();
+            if (DONE.equals(data)) {
+                break;
+            }
+            if (!completion.append(parseDelta(data))) {
+                break; // maxChars reached, no point reading the rest
+            }
+        }
+        completion.flushSentence();
+        String answer = completion.full.toString().trim();
+        return answer.isEmpty() ? null : answer;
+    }
+
+    /**
+     * choices[0].delta.content of one chunk, or null
+     */
+    private static String parseDelta(String data) {
+        try {
+            JsonObject chunk = JsonParser.parseString(data).getAsJsonObject();
+            JsonArray choices = chunk.getAsJsonArray("choices");
+            if (choices == null || choices.isEmpty()) {
+                return null;
+            }
+            JsonObject delta = choices.get(0).getAsJsonObject().getAsJsonObject("delta");
+            if (delta == null) {
+                return null;
+            }
+            JsonElement content = delta.get("content");
+            return content == null || content.isJsonNull() ? null : content.getAsString();
+        } catch (Exception e) {
+            LOGGER.debug("Skipping malformed stream chunk: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns false once maxChars is reached
+     */
+    private boolean append(String text) {
+        if (text == null || text.isEmpty()) {
+            return true;
+        }
+        boolean complete = false;
+        if (maxChars > 0 && full.length() + text.length() >= maxChars) {
+            text = text.substring(0, maxChars - full.length());
+            complete = true;
+        }
+        full.append(text);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            sentence.append(c);
+            if (c == '\n' || (Character.isWhitespace(c) && endsWithPunctuation(sentence.length() - 1))
+                    || sentence.length() >= MAX_SENTENCE_CHARS && Character.isWhitespace(c)) {
+                flushSentence();
+            }
+        }
+        return !complete;
+    }
+
+    private boolean endsWithPunctuation(int whitespaceAt) {
+        if (whitespaceAt == 0) {
+            return false;
+        }
+        char previous = sentence.charAt(whitespaceAt - 1);
+        return previous == '.' || previous == '!' || previous == '?' || previous == '…';
+    }
+
+    private void flushSentence() {
+        String text = sentence.toString().trim();
+        sentence.setLength(0);
+        if (!text.isEmpty()) {
+            onSentence.accept(text);
+        }
+    }
+}
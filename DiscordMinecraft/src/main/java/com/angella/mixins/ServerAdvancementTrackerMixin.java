@@ -2,24 +2,26 @@ package com.angella.mixins;
 
 import com.angella.AngellaMod;
 import com.angella.discord.EmbedBuilder;
+import com.angella.scheduler.TickScheduler;
+import com.launcher.shared.AdvancementCounter;
 import net.minecraft.advancement.AdvancementEntry;
 import net.minecraft.advancement.AdvancementProgress;
+import net.minecraft.advancement.PlayerAdvancementTracker;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
-import org.spongepowered.asm.mixin.Final;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
-import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
-@Mixin(targets = "net.minecraft.server.network.ServerAdvancementTracker")
+@Mixin(PlayerAdvancementTracker.class)
 public abstract class ServerAdvancementTrackerMixin {
     
-    @Shadow @Final private ServerPlayerEntity owner;
+    @Shadow private ServerPlayerEntity owner;
     
     @Shadow
     public abstract AdvancementProgress getProgress(AdvancementEntry advancement);
@@ -27,13 +29,21 @@ public abstract class ServerAdvancementTrackerMixin {
     // Track recently completed advancements to avoid duplicates
     private static final Set<String> recentlyCompleted = ConcurrentHashMap.newKeySet();
     
-    @Inject(method = "grantCriterion(Lnet/minecraft/advancement/AdvancementEntry;Ljava/lang/String;)V", at = @At("TAIL"))
-    private void onAdvancementGranted(AdvancementEntry advancement, String criterionName, CallbackInfo ci) {
-        // Only process if advancement has a display (visible advancements)
-        if (advancement.value().display().isPresent()) {
+    @Inject(method = "revokeCriterion", at = @At("RETURN"))
+    private void onCriterionRevoked(AdvancementEntry advancement, String criterionName, CallbackInfoReturnable<Boolean> cir) {
+        if (cir.getReturnValueZ()) {
+            AdvancementCounter.onProgressChanged(owner, advancement, getProgress(advancement));
+        }
+    }
+    
+    @Inject(method = "grantCriterion", at = @At("RETURN"))
+    private void onAdvancementGranted(AdvancementEntry advancement, String criterionName, CallbackInfoReturnable<Boolean> cir) {
+        // Only process if the criterion was actually granted and advancement has a display (visible advancements)
+        if (cir.getReturnValueZ() && advancement.value().display().isPresent()) {
             try {
                 // Check if advancement is actually completed (all criteria met)
                 AdvancementProgress progress = getProgress(advancement);
+                AdvancementCounter.onProgressChanged(owner, advancement, progress);
                 
                 if (progress.isDone()) {
                     // Create unique key for this advancement completion
@@ -43,15 +53,8 @@ public abstract class ServerAdvancementTrackerMixin {
                     if (!recentlyCompleted.contains(completionKey)) {
                         recentlyCompleted.add(completionKey);
                         
-                        // Remove from set after 5 seconds to allow re-processing if needed
-                        java.util.concurrent.CompletableFuture.runAsync(() -> {
-                            try {
-                                Thread.sleep(5000);
-                                recentlyCompleted.remove(completionKey);
-                            } catch (InterruptedException e) {
-                                Thread.currentThread().interrupt();
-                            }
-                        });
+                        // Remove from set after 5 seconds (100 ticks) to allow re-processing if needed
+                        TickScheduler.runLater(100, () -> recentlyCompleted.remove(completionKey));
                         
                         // Send to Discord
                         if (AngellaMod.getDiscordBot() != null && AngellaMod.getDiscordBot().isReady()) {
@@ -85,12 +88,14 @@ public abstract class ServerAdvancementTrackerMixin {
                                     owner.getDisplayName(), 
                                     display.getTitle());
                                 
-                                // Send to Discord asynchronously
-                                java.util.concurrent.CompletableFuture.runAsync(() -> {
+                                // Player data is read here on the server thread, the embed is built and sent in background
+                                EmbedBuilder.AdvancementSnapshot snapshot = EmbedBuilder.snapshotAdvancement(owner, advancement, chatMessage);
+                                TickScheduler.runAsync(() -> {
                                     try {
-                                        EmbedBuilder.createAdvancementEmbed(owner, advancement, chatMessage, AngellaMod.getConfig())
-                                                .sendToGame();
-                                        AngellaMod.LOGGER.info("Successfully sent advancement to Discord: {}", advancement.id());
+                                        // A failed send is logged by the outbox
+                                        EmbedBuilder.createAdvancementEmbed(snapshot, AngellaMod.getConfig())
+                                                .sendToGame()
+                                                .thenRun(() -> AngellaMod.LOGGER.info("Successfully sent advancement to Discord: {}", advancement.id()));
                                     } catch (Exception e) {
                                         AngellaMod.LOGGER.error("Failed to send advancement to Discord: {}", advancement.id(), e);
                                     }
@@ -0,0 +1,188 @@
+package com.angella.scheduler;
+
+import com.angella.AngellaMod;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.server.MinecraftServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Delayed tasks measured in server ticks instead of Thread.sleep, timers and scheduled pools.
+ * Tasks run on the server thread at the end of the tick they are due;
+ * heavy work (HTTP, Discord) should be handed to {@link #runAsync(Runnable)}.
+ *
+ * Backed by a hierarchical timing wheel: scheduling and cancelling are O(1),
+ * and each tick only touches the tasks due on it (plus an occasional cascade
+ * from the coarser wheels), no matter how many tasks are pending.
+ */
+public final class TickScheduler {
+    // Wheel 0 has one slot per tick, every next wheel has 64 slots, each covering a whole turn of the previous one
+    private static final int WHEEL0_BITS = 8;
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL0_MASK = (1 << WHEEL0_BITS) - 1;
+    private static final int WHEEL_MASK = (1 << WHEEL_BITS) - 1;
+    private static final int WHEEL_COUNT = 4; // 2^26 ticks, about 38 days, longer delays are re-cascaded
+
+    // New tasks may come from any thread (Discord, HTTP), the wheels themselves belong to the server thread
+    private static final Queue<ScheduledTask> incoming = new ConcurrentLinkedQueue<>();
+    private static final List<List<ScheduledTask>> wheels = new ArrayList<>();
+    private static final ExecutorService background = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Angella-Background");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static long currentTick = 0;
+
+    static {
+        for (int wheel = 0; wheel < WHEEL_COUNT; wheel++) {
+            int slots = wheel == 0 ? 1 << WHEEL0_BITS : 1 << WHEEL_BITS;
+            for (int slot = 0; slot < slots; slot++) {
+                wheels.add(new ArrayList<>());
+            }
+        }
+    }
+
+    private TickScheduler() {
+    }
+
+    public static void register() {
+        ServerTickEvents.END_SERVER_TICK.register(TickScheduler::tick);
+    }
+
+    /**
+     * Runs the task on the server thread after the given number of ticks
+     */
+    public static ScheduledTask runLater(int delayTicks, Runnable task) {
+        ScheduledTask scheduled = new ScheduledTask(Math.max(0, delayTicks), task);
+        incoming.add(scheduled);
+        return scheduled;
+    }
+
+    /**
+     * Runs the task on the background thread after the given number of ticks
+     */
+    public static ScheduledTask runLaterAsync(int delayTicks, Runnable task) {
+        return runLater(delayTicks, () -> runAsync(task));
+    }
+
+    /**
+     * Runs the task on the background thread, keeping the server thread free
+     */
+    public static void runAsync(Runnable task) {
+        background.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                AngellaMod.LOGGER.error("Background task failed", e);
+            }
+        });
+    }
+
+    private static void tick(MinecraftServer server) {
+        currentTick++;
+        ScheduledTask added;
+        while ((added = incoming.poll()) != null) {
+            // Delay is counted from the tick the task was picked up
+            added.dueTick = currentTick + added.delayTicks;
+            insert(added);
+        }
+
+        cascade();
+
+        List<ScheduledTask> due = takeSlot(0, (int) (currentTick & WHEEL0_MASK));
+        for (ScheduledTask task : due) {
+            if (task.cancelled) {
+                continue;
+            }
+            try {
+                task.task.run();
+            } catch (Exception e) {
+                AngellaMod.LOGGER.error("Scheduled task failed", e);
+            }
+        }
+    }
+
+    /**
+     * When a finer wheel completes a turn, the current slot of the coarser wheel is spread
+     * over the finer ones. Coarser wheels go first, so their tasks can fall through several levels at once
+     */
+    private static void cascade() {
+        if ((currentTick & WHEEL0_MASK) != 0) {
+            return;
+        }
+        int topWheel = 1;
+        while (topWheel < WHEEL_COUNT - 1 && slotIndex(topWheel, currentTick) == 0) {
+            topWheel++;
+        }
+        for (int wheel = topWheel; wheel >= 1; wheel--) {
+            for (ScheduledTask task : takeSlot(wheel, slotIndex(wheel, currentTick))) {
+                if (!task.cancelled) {
+                    insert(task);
+                }
+            }
+        }
+    }
+
+    private static void insert(ScheduledTask task) {
+        long delta = task.dueTick - currentTick;
+        int wheel = 0;
+        long span = 1L << WHEEL0_BITS;
+        while (wheel < WHEEL_COUNT - 1 && delta >= span) {
+            wheel++;
+            span <<= WHEEL_BITS;
+        }
+        slot(wheel, slotIndex(wheel, task.dueTick)).add(task);
+    }
+
+    private static int slotIndex(int wheel, long tick) {
+        if (wheel == 0) {
+            return (int) (tick & WHEEL0_MASK);
+        }
+        return (int) ((tick >>> (WHEEL0_BITS + (wheel - 1) * WHEEL_BITS)) & WHEEL_MASK);
+    }
+
+    private static List<ScheduledTask> slot(int wheel, int index) {
+        int offset = wheel == 0 ? 0 : (1 << WHEEL0_BITS) + (wheel - 1) * (1 << WHEEL_BITS);
+        return wheels.get(offset + index);
+    }
+
+    /**
+     * Empties the slot and returns its tasks, so tasks added while they run go to a fresh list
+     */
+    private static List<ScheduledTask> takeSlot(int wheel, int index) {
+        List<ScheduledTask> tasks = slot(wheel, index);
+        if (tasks.isEmpty()) {
+            return tasks;
+        }
+        List<ScheduledTask> taken = new ArrayList<>(tasks);
+        tasks.clear();
+        return taken;
+    }
+
+    /**
+     * Handle of a scheduled task
+     */
+    public static final class ScheduledTask {
+        private final int delayTicks;
+        private final Runnable task;
+        private long dueTick;
+        private volatile boolean cancelled = false;
+
+        private ScheduledTask(int delayTicks, Runnable task) {
+            this.delayTicks = delayTicks;
+            this.task = task;
+        }
+
+        /**
+         * The task will not run; it is dropped from the wheel when its slot comes up
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.angella.verification;
+
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Коды верификации, которые ждут ввода в Discord.
+ * Просроченные коды отбрасываются при поиске и периодической чисткой {@link #sweep()},
+ * своих потоков и таймеров у хранилища нет. У одного игрока не больше maxPerPlayer
+ * активных кодов, поэтому память ограничена числом игроков, а не числом вызовов /verif
+ */
+class VerificationCodeStore {
+    private static final int CODE_MIN = 100000; // 6-значные коды: от 100000 до 999999
+    private static final int CODE_RANGE = 900000;
+
+    private final long ttlMillis;
+    private final int maxPerPlayer;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, PendingCode> byCode = new HashMap<>();
+    // Коды игрока от старых к новым
+    private final Map<UUID, Deque<PendingCode>> byPlayer = new HashMap<>();
+
+    VerificationCodeStore(long ttlMillis, int maxPerPlayer) {
+        this.ttlMillis = ttlMillis;
+        this.maxPerPlayer = Math.max(1, maxPerPlayer);
+    }
+
+    /**
+     * Выдает новый код, который не совпадает ни с одним активным.
+     * Если у игрока уже maxPerPlayer кодов, самый старый перестает действовать
+     */
+    synchronized String generate(UUID playerUuid) {
+        long now = System.currentTimeMillis();
+        Deque<PendingCode> codes = byPlayer.computeIfAbsent(playerUuid, uuid -> new ArrayDeque<>());
+        while (!codes.isEmpty() && (codes.peekFirst().isExpired(now) || codes.size() >= maxPerPlayer)) {
+            byCode.remove(codes.pollFirst().code);
+        }
+
+        String code;
+        do {
+            code = String.valueOf(CODE_MIN + random.nextInt(CODE_RANGE));
+        } while (byCode.containsKey(code));
+
+        PendingCode pending = new PendingCode(code, playerUuid, now + ttlMillis);
+        byCode.put(code, pending);
+        codes.addLast(pending);
+        return code;
+    }
+
+    /**
+     * Забирает код: возвращает UUID игрока или null, если кода нет или он просрочен.
+     * Код одноразовый
+     */
+    synchronized UUID consume(String code) {
+        PendingCode pending = byCode.remove(code);
+        if (pending == null) {
+            return null;
+        }
+        removeFromPlayer(pending);
+        return pending.isExpired(System.currentTimeMillis()) ? null : pending.playerUuid;
+    }
+
+    /**
+     * Удаляет все просроченные коды. Возвращает число удаленных
+     */
+    synchronized int sweep() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        Iterator<PendingCode> iterator = byCode.values().iterator();
+        while (iterator.hasNext()) {
+            PendingCode pending = iterator.next();
+            if (pending.isExpired(now)) {
+                iterator.remove();
+                removeFromPlayer(pending);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    synchronized int size() {
+        return byCode.size();
+    }
+
+    private void removeFromPlayer(PendingCode pending) {
+        Deque<PendingCode> codes = byPlayer.get(pending.playerUuid);
+        if (codes != null) {
+            codes.remove(pending);
+            if (codes.isEmpty()) {
+                byPlayer.remove(pending.playerUuid);
+            }
+        }
+    }
+
+    private static final class PendingCode {
+        final String code;
+        final UUID playerUuid;
+        final long expiresAt;
+
+        PendingCode(String code, UUID playerUuid, long expiresAt) {
+            this.code = code;
+            this.playerUuid = playerUuid;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.angella.verification;
+
+import com.angella.AngellaMod;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Хранение привязок на диске: снимок (прежний angella_verifications.json) и журнал изменений рядом с ним.
+ * Каждое изменение дописывает в журнал одну строку, а не переписывает весь файл.
+ *
+ * Пишет отдельный поток: все записи, накопившиеся к моменту записи, уходят одним write и одним fsync.
+ * Когда журнал вырастает, поток сворачивает его в новый снимок (tmp-файл + атомарное переименование)
+ * и очищает журнал. Записи журнала идемпотентны, поэтому повторное применение после снимка безопасно
+ */
+class VerificationJournal {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final char LINK = 'L';
+    private static final char UNLINK = 'U';
+    // После скольких записей в журнале делаем новый снимок
+    private static final int COMPACT_AFTER_RECORDS = 512;
+    // Сколько ждем, пока поток допишет журнал при остановке сервера
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+    // Метка конца очереди. Поток не прерываем: interrupt во время записи закрыл бы FileChannel
+    private static final String END = "";
+
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final Map<UUID, Long> state;
+    private final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+    private Thread writer;
+    private FileChannel channel;
+    private int journalRecords = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * @param state живая карта привязок; из нее строится снимок при сворачивании журнала
+     */
+    VerificationJournal(Path snapshotPath, Map<UUID, Long> state) {
+        this.snapshotPath = snapshotPath;
+        this.journalPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".journal");
+        this.state = state;
+    }
+
+    /**
+     * Читает снимок и применяет к нему журнал, затем запускает поток записи
+     */
+    synchronized void open() {
+        if (writer != null) {
+            return;
+        }
+        state.clear();
+        readSnapshot();
+        journalRecords = replayJournal();
+        AngellaMod.LOGGER.info("Loaded {} verified players", state.size());
+
+        try {
+            Files.createDirectories(snapshotPath.getParent());
+            channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            AngellaMod.LOGGER.error("Failed to open verification journal", e);
+        }
+
+        writer = new Thread(this::runWriter, "Angella-Verification-Journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    void appendLink(UUID playerUuid, long discordId) {
+        enqueue(LINK + " " + playerUuid + " " + discordId + "\n");
+    }
+
+    void appendUnlink(UUID playerUuid) {
+        enqueue(UNLINK + " " + playerUuid + "\n");
+    }
+
+    /**
+     * Дописывает очередь, сворачивает журнал в снимок и останавливает поток
+     */
+    void close() {
+        Thread thread;
+        synchronized (this) {
+            if (closed || writer == null) {
+                return;
+            }
+            closed = true;
+            thread = writer;
+            queue.add(END);
+        }
+        try {
+            thread.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void enqueue(String record) {
+        if (closed) {
+            AngellaMod.LOGGER.warn("Verification journal is closed, dropping record {}", record.trim());
+            return;
+        }
+        queue.add(record);
+    }
+
+    private void runWriter() {
+        // Записи, оставшиеся в журнале с прошлого запуска, сразу сворачиваем
+        if (journalRecords > 0) {
+            compact();
+        }
+        List<String> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch);
+            // END приходит последним: после closed новые записи в очередь не попадают
+            running = !batch.remove(END);
+            writeBatch(batch);
+            batch.clear();
+        }
+        compact();
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            AngellaMod.LOGGER.warn("Failed to close verification journal: {}", e.getMessage());
+        }
+    }
+
+    private void writeBatch(List<String> batch) {
+        if (batch.isEmpty() || channel == null) {
+            return;
+        }
+        StringBuilder records = new StringBuilder();
+        for (String record : batch) {
+            records.append(record);
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(records.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            journalRecords += batch.size();
+            AngellaMod.LOGGER.debug("Appended {} verification records", batch.size());
+        } catch (IOException e) {
+            AngellaMod.LOGGER.error("Failed to append verification records", e);
+        }
+        if (journalRecords >= COMPACT_AFTER_RECORDS) {
+            compact();
+        }
+    }
+
+    /**
+     * Пишет снимок текущей карты во временный файл и атомарно подменяет им старый снимок.
+     * Журнал очищается только после успешной подмены: если сервер упадет посередине,
+     * при загрузке останутся старый снимок и полный журнал
+     */
+    private void compact() {
+        Path tmp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try {
+            JsonObject json = new JsonObject();
+            for (Map.Entry<UUID, Long> entry : state.entrySet()) {
+                json.addProperty(entry.getKey().toString(), entry.getValue());
+            }
+            try (FileChannel tmpChannel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(GSON.toJson(json).getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    tmpChannel.write(buffer);
+                }
+                tmpChannel.force(true);
+            }
+            try {
+                Files.move(tmp, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (channel != null) {
+                channel.truncate(0);
+                channel.force(true);
+            }
+            journalRecords = 0;
+            AngellaMod.LOGGER.debug("Compacted verification journal, {} verifications", json.size());
+        } catch (IOException e) {
+            AngellaMod.LOGGER.error("Failed to compact verification journal", e);
+        }
+    }
+
+    private void readSnapshot() {
+        if (!Files.exists(snapshotPath)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(snapshotPath, StandardCharsets.UTF_8)) {
+            JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+            for (String key : json.keySet()) {
+                try {
+                    state.put(UUID.fromString(key), json.get(key).getAsLong());
+                } catch (Exception e) {
+                    AngellaMod.LOGGER.warn("Failed to load verification for {}: {}", key, e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            AngellaMod.LOGGER.error("Failed to load verifications", e);
+        }
+    }
+
+    /**
+     * Применяет журнал к карте. Недописанная последняя строка (сервер упал во время записи) пропускается
+     */
+    private int replayJournal() {
+        if (!Files.exists(journalPath)) {
+            return 0;
+        }
+        int applied = 0;
+        try {
+            String content = Files.readString(journalPath, StandardCharsets.UTF_8);
+            int complete = content.lastIndexOf('\n') + 1;
+            for (String line : content.substring(0, complete).split("\n")) {
+                if (applyRecord(line)) {
+                    applied++;
+                } else if (!line.isEmpty()) {
+                    AngellaMod.LOGGER.warn("Skipping malformed verification record: {}", line);
+                }
+            }
+            if (complete < content.length()) {
+                AngellaMod.LOGGER.warn("Verification journal ends with an incomplete record, ignoring it");
+            }
+        } catch (IOException e) {
+            AngellaMod.LOGGER.error("Failed to read verification journal", e);
+        }
+        return applied;
+    }
+
+    private boolean applyRecord(String line) {
+        String[] parts = line.split(" ");
+        try {
+            if (parts.length == 3 && parts[0].charAt(0) == LINK) {
+                state.put(UUID.fromString(parts[1]), Long.parseLong(parts[2]));
+                return true;
+            }
+            if (parts.length == 2 && parts[0].charAt(0) == UNLINK) {
+                state.remove(UUID.fromString(parts[1]));
+                return true;
+            }
+        } catch (IllegalArgumentException e) {
+            // неверный UUID или Discord ID
+        }
+        return false;
+    }
+}
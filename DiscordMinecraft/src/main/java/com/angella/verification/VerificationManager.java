@@ -1,108 +1,105 @@
 package com.angella.verification;
 
 import com.angella.AngellaMod;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.angella.scheduler.TickScheduler;
 import net.fabricmc.loader.api.FabricLoader;
 
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class VerificationManager {
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
     private static final Path VERIFICATION_PATH = FabricLoader.getInstance().getConfigDir().resolve("angella_verifications.json");
     
     // UUID игрока -> Discord ID
     private static final Map<UUID, Long> verifiedPlayers = new ConcurrentHashMap<>();
+    // Discord ID -> UUID игроков (на один Discord можно привязать несколько аккаунтов)
+    private static final TLongObjectMap<Set<UUID>> playersByDiscordId = new TLongObjectHashMap<>();
+    // Изменения привязок идут под write-блокировкой, чтобы обе карты и журнал менялись согласованно.
+    // Прямые запросы читают ConcurrentHashMap без блокировки, обратные - под read-блокировкой
+    private static final ReadWriteLock linksLock = new ReentrantReadWriteLock();
+    // Изменения дописываются в журнал фоновым потоком, файл целиком не переписывается
+    private static final VerificationJournal journal = new VerificationJournal(VERIFICATION_PATH, verifiedPlayers);
+    
+    // Срок действия кода и сколько активных кодов может быть у одного игрока
+    private static final long CODE_TTL_MS = 5 * 60 * 1000;
+    private static final int MAX_CODES_PER_PLAYER = 3;
+    // Как часто чистим просроченные коды (1200 тиков = 1 минута)
+    private static final int CODE_SWEEP_INTERVAL_TICKS = 1200;
     
     // Код верификации -> UUID игрока (временное хранилище, очищается после использования)
-    private static final Map<String, UUID> pendingVerifications = new ConcurrentHashMap<>();
+    private static final VerificationCodeStore pendingVerifications = new VerificationCodeStore(CODE_TTL_MS, MAX_CODES_PER_PLAYER);
     
+
     public static void load() {
-        File file = VERIFICATION_PATH.toFile();
-        if (file.exists()) {
-            try (FileReader reader = new FileReader(file)) {
-                JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
-                verifiedPlayers.clear();
-                
-                for (String key : json.keySet()) {
-                    try {
-                        UUID playerUuid = UUID.fromString(key);
-                        long discordId = json.get(key).getAsLong();
-                        verifiedPlayers.put(playerUuid, discordId);
-                    } catch (Exception e) {
-                        AngellaMod.LOGGER.warn("Failed to load verification for {}: {}", key, e.getMessage());
-                    }
-                }
-                
-                AngellaMod.LOGGER.info("Loaded {} verified players", verifiedPlayers.size());
-            } catch (IOException e) {
-                AngellaMod.LOGGER.error("Failed to load verifications", e);
-            }
-        }
-    }
-    
-    public static void save() {
-        File file = VERIFICATION_PATH.toFile();
+        scheduleCodeSweep();
+        linksLock.writeLock().lock();
         try {
-            if (!file.getParentFile().exists()) {
-                file.getParentFile().mkdirs();
-            }
-            
-            JsonObject json = new JsonObject();
+            journal.open();
+            playersByDiscordId.clear();
             for (Map.Entry<UUID, Long> entry : verifiedPlayers.entrySet()) {
-                json.addProperty(entry.getKey().toString(), entry.getValue());
+                indexLink(entry.getKey(), entry.getValue());
             }
-            
-            try (FileWriter writer = new FileWriter(file)) {
-                GSON.toJson(json, writer);
-            }
-            
-            AngellaMod.LOGGER.debug("Saved {} verifications", verifiedPlayers.size());
-        } catch (IOException e) {
-            AngellaMod.LOGGER.error("Failed to save verifications", e);
+        } finally {
+            linksLock.writeLock().unlock();
         }
     }
     
+    /**
+     * Дописывает журнал и сворачивает его в снимок. Вызывается при остановке сервера
+     */
+    public static void close() {
+        journal.close();
+    }
+    
     /**
      * Генерирует код верификации для игрока
      */
     public static String generateVerificationCode(UUID playerUuid) {
-        // Генерируем 6-значный код
-        int code = (int)(Math.random() * 900000) + 100000; // От 100000 до 999999
-        String codeStr = String.valueOf(code);
-        
-        // Сохраняем связь код -> UUID
-        pendingVerifications.put(codeStr, playerUuid);
-        
-        // Удаляем код через 5 минут
-        new java.util.Timer().schedule(new java.util.TimerTask() {
-            @Override
-            public void run() {
-                pendingVerifications.remove(codeStr);
+        // 6-значный код, действует 5 минут
+        return pendingVerifications.generate(playerUuid);
+    }
+    
+    /**
+     * Одна периодическая чистка на все коды вместо таймера на каждый код
+     */
+    private static void scheduleCodeSweep() {
+        TickScheduler.runLater(CODE_SWEEP_INTERVAL_TICKS, () -> {
+            int removed = pendingVerifications.sweep();
+            if (removed > 0) {
+                AngellaMod.LOGGER.debug("Removed {} expired verification codes", removed);
             }
-        }, 5 * 60 * 1000);
-        
-        return codeStr;
+            scheduleCodeSweep();
+        });
     }
     
     /**
      * Проверяет код верификации и связывает игрока с Discord
      */
     public static boolean verifyPlayer(String code, long discordId) {
-        UUID playerUuid = pendingVerifications.remove(code);
+        UUID playerUuid = pendingVerifications.consume(code);
         if (playerUuid != null) {
-            verifiedPlayers.put(playerUuid, discordId);
-            save();
+            // Под одной блокировкой, чтобы порядок записей в журнале совпадал с порядком изменений
+            linksLock.writeLock().lock();
+            try {
+                Long previous = verifiedPlayers.put(playerUuid, discordId);
+                if (previous != null) {
+                    unindexLink(playerUuid, previous);
+                }
+                indexLink(playerUuid, discordId);
+                journal.appendLink(playerUuid, discordId);
+            } finally {
+                linksLock.writeLock().unlock();
+            }
             AngellaMod.LOGGER.info("Player {} verified with Discord ID {}", playerUuid, discordId);
             return true;
         }
@@ -123,17 +120,63 @@ public class VerificationManager {
         return verifiedPlayers.containsKey(playerUuid);
     }
     
+    /**
+     * Возвращает UUID всех игроков, привязанных к Discord-аккаунту (пустой набор, если таких нет)
+     */
+    public static Set<UUID> getPlayerUuids(long discordId) {
+        linksLock.readLock().lock();
+        try {
+            Set<UUID> uuids = playersByDiscordId.get(discordId);
+            return uuids == null ? Collections.emptySet() : Collections.unmodifiableSet(new HashSet<>(uuids));
+        } finally {
+            linksLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Проверяет, привязан ли к Discord-аккаунту хотя бы один игрок
+     */
+    public static boolean isDiscordLinked(long discordId) {
+        linksLock.readLock().lock();
+        try {
+            return playersByDiscordId.containsKey(discordId);
+        } finally {
+            linksLock.readLock().unlock();
+        }
+    }
+    
     /**
      * Удаляет верификацию игрока
      */
     public static boolean removeVerification(UUID playerUuid) {
-        if (verifiedPlayers.remove(playerUuid) != null) {
-            save();
-            AngellaMod.LOGGER.info("Removed verification for player {}", playerUuid);
-            return true;
+        linksLock.writeLock().lock();
+        try {
+            Long discordId = verifiedPlayers.remove(playerUuid);
+            if (discordId == null) {
+                return false;
+            }
+            unindexLink(playerUuid, discordId);
+            journal.appendUnlink(playerUuid);
+        } finally {
+            linksLock.writeLock().unlock();
+        }
+        AngellaMod.LOGGER.info("Removed verification for player {}", playerUuid);
+        return true;
+    }
+    
+    private static void indexLink(UUID playerUuid, long discordId) {
+        Set<UUID> uuids = playersByDiscordId.get(discordId);
+        if (uuids == null) {
+            uuids = new HashSet<>(1);
+            playersByDiscordId.put(discordId, uuids);
+        }
+        uuids.add(playerUuid);
+    }
+    
+    private static void unindexLink(UUID playerUuid, long discordId) {
+        Set<UUID> uuids = playersByDiscordId.get(discordId);
+        if (uuids != null && uuids.remove(playerUuid) && uuids.isEmpty()) {
+            playersByDiscordId.remove(discordId);
         }
-        return false;
     }
 }
-
-
@@ -0,0 +1,161 @@
+package com.angella.discord;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Batching of name lookups against a local stand-in for the Mojang bulk endpoint
+ */
+class MojangProfileBatcherTest {
+    private static final long BATCH_WINDOW_MS = 100;
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private MockWebServer server;
+    // Names of every bulk request, in the order they arrived
+    private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+    private volatile int responseCode = 200;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                List<String> names = new ArrayList<>();
+                JsonArray profiles = new JsonArray();
+                for (JsonElement name : JsonParser.parseString(request.getBody().readUtf8()).getAsJsonArray()) {
+                    names.add(name.getAsString());
+                    // Every name is a known player except the ones starting with "unknown"
+                    if (!name.getAsString().startsWith("unknown")) {
+                        JsonObject profile = new JsonObject();
+                        profile.addProperty("id", idOf(name.getAsString()));
+                        profile.addProperty("name", name.getAsString());
+                        profiles.add(profile);
+                    }
+                }
+                batches.add(names);
+                if (responseCode != 200) {
+                    return new MockResponse().setResponseCode(responseCode);
+                }
+                return new MockResponse().setBody(profiles.toString());
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void twelveConcurrentNamesGoOutInTwoRequests() throws Exception {
+        MojangProfileBatcher batcher = newBatcher();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            names.add("player" + i);
+        }
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (String name : names) {
+            Thread thread = new Thread(() -> {
+                await(start);
+                CompletableFuture<String> result = batcher.lookup(name);
+                synchronized (results) {
+                    results.add(result);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        }
+        for (CompletableFuture<String> result : results) {
+            result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        assertEquals(2, server.getRequestCount());
+        // The tenth name sends the full batch at once, the rest waits for the window
+        assertEquals(MojangProfileBatcher.MAX_NAMES_PER_REQUEST, batches.get(0).size());
+        assertEquals(2, batches.get(1).size());
+        List<String> sent = new ArrayList<>(batches.get(0));
+        sent.addAll(batches.get(1));
+        assertTrue(sent.containsAll(names));
+    }
+
+    @Test
+    void duplicateNamesShareOneLookup() throws Exception {
+        MojangProfileBatcher batcher = newBatcher();
+
+        CompletableFuture<String> first = batcher.lookup("Steve");
+        CompletableFuture<String> second = batcher.lookup("steve");
+
+        assertEquals(idOf("steve"), first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(idOf("steve"), second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(List.of("steve"), batches.get(0));
+    }
+
+    @Test
+    void unknownNameResolvesToNull() throws Exception {
+        MojangProfileBatcher batcher = newBatcher();
+
+        CompletableFuture<String> known = batcher.lookup("alex");
+        CompletableFuture<String> unknown = batcher.lookup("unknown_player");
+
+        assertEquals(idOf("alex"), known.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNull(unknown.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void serverErrorResolvesToNull() throws Exception {
+        responseCode = 503;
+        MojangProfileBatcher batcher = newBatcher();
+
+        assertNull(batcher.lookup("alex").get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private MojangProfileBatcher newBatcher() {
+        return new MojangProfileBatcher(server.url("/profiles/bulk").toString(), BATCH_WINDOW_MS, Duration.ofSeconds(TIMEOUT_SECONDS));
+    }
+
+    private static String idOf(String name) {
+        return String.format("%032x", name.toLowerCase(Locale.ROOT).hashCode() & 0xffffffffL);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
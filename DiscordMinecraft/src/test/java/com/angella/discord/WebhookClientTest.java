@@ -0,0 +1,133 @@
+package com.angella.discord;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Retries, per-webhook ordering and the in-flight limit of WebhookClient against a local server
+ */
+class WebhookClientTest {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private MockWebServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void rateLimitedMessageIsRetriedAfterRetryAfter() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "0.3"));
+        server.enqueue(new MockResponse().setResponseCode(204));
+
+        CompletableFuture<Boolean> result = WebhookClient.sendTextMessage(url("rate-limited"), "hello");
+
+        assertNotNull(server.takeRequest(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        long firstAt = System.nanoTime();
+        assertNotNull(server.takeRequest(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstAt);
+
+        assertTrue(result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(waitedMs >= 250, "retried after " + waitedMs + " ms");
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void messagesToOneWebhookKeepTheirOrderWhileRetrying() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "0.2"));
+        server.enqueue(new MockResponse().setResponseCode(204));
+        server.enqueue(new MockResponse().setResponseCode(204));
+        server.enqueue(new MockResponse().setResponseCode(204));
+
+        String url = url("ordered");
+        List<CompletableFuture<Boolean>> results = List.of(
+                WebhookClient.sendTextMessage(url, "first"),
+                WebhookClient.sendTextMessage(url, "second"),
+                WebhookClient.sendTextMessage(url, "third"));
+
+        List<String> bodies = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            RecordedRequest request = server.takeRequest(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull(request);
+            bodies.add(request.getBody().readUtf8());
+        }
+        for (CompletableFuture<Boolean> result : results) {
+            assertTrue(result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        assertTrue(bodies.get(0).contains("first"));
+        assertTrue(bodies.get(1).contains("first"));
+        assertTrue(bodies.get(2).contains("second"));
+        assertTrue(bodies.get(3).contains("third"));
+    }
+
+    @Test
+    void noMoreThanFourRequestsInFlight() throws Exception {
+        AtomicInteger current = new AtomicInteger();
+        AtomicInteger max = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                max.accumulateAndGet(current.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(300);
+                } finally {
+                    current.decrementAndGet();
+                }
+                return new MockResponse().setResponseCode(204);
+            }
+        });
+
+        // Separate webhooks, so only the global limit keeps them apart
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            results.add(WebhookClient.sendTextMessage(url("parallel-" + i), "message " + i));
+        }
+        for (CompletableFuture<Boolean> result : results) {
+            assertTrue(result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+
+        assertEquals(12, server.getRequestCount());
+        assertTrue(max.get() <= 4, "in flight at once: " + max.get());
+        assertTrue(max.get() > 1, "requests were not sent in parallel");
+    }
+
+    @Test
+    void clientErrorFailsWithoutRetrying() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(400));
+        server.enqueue(new MockResponse().setResponseCode(204));
+
+        CompletableFuture<Boolean> result = WebhookClient.sendTextMessage(url("bad-request"), "hello");
+
+        // A retry would have got the 204 and delivered the message
+        assertFalse(result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private String url(String webhook) {
+        return server.url("/api/webhooks/" + webhook).toString();
+    }
+}
@@ -0,0 +1,101 @@
+package com.angella.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+    private static final long TIMEOUT_SECONDS = 5;
+
+    @Test
+    void secondCallerWaitsForTheRunningLoader() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> flight.execute("steve", () -> {
+                loads.incrementAndGet();
+                loaderStarted.countDown();
+                await(release);
+                return "value";
+            }));
+            assertTrue(loaderStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+            AtomicReference<Thread> waiter = new AtomicReference<>();
+            Future<String> second = executor.submit(() -> {
+                waiter.set(Thread.currentThread());
+                return flight.execute("steve", () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                });
+            });
+            // Release the loader only once the second caller is parked on the running lookup
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (waiter.get() == null || waiter.get().getState() != Thread.State.WAITING) {
+                assertTrue(System.nanoTime() < deadline, "second caller did not wait");
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertEquals("value", first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertEquals("value", second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void finishedLookupIsNotCached() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        flight.execute("steve", () -> "v" + loads.incrementAndGet());
+        assertEquals("v2", flight.execute("steve", () -> "v" + loads.incrementAndGet()));
+    }
+
+    @Test
+    void asyncCallersShareTheRunningCall() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> response = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.executeAsync("steve", () -> {
+            calls.incrementAndGet();
+            return response;
+        });
+        CompletableFuture<String> second = flight.executeAsync("steve", () -> {
+            calls.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        // Each caller has its own copy, cancelling one leaves the others waiting
+        first.cancel(false);
+        response.complete("value");
+
+        assertEquals(1, calls.get());
+        assertEquals("value", second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(second.isCancelled());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
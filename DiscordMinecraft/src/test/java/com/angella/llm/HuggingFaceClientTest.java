@@ -0,0 +1,176 @@
+package com.angella.llm;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * chatStream against a local server that sends the answer as a chunked text/event-stream
+ */
+class HuggingFaceClientTest {
+    private static final int TIMEOUT_MS = 10_000;
+    // Transfer-encoding chunks are smaller than the events, so events arrive split
+    private static final int CHUNK_BYTES = 16;
+    // Below the 5 s MockWebServer waits for its writers on shutdown
+    private static final long TAIL_DELAY_SECONDS = 4;
+
+    private MockWebServer server;
+    private final List<String> sentences = new ArrayList<>();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void sentencesArePassedOnAtPunctuationAndNewlines() throws Exception {
+        server.enqueue(stream(
+                delta("Привет"),
+                delta("! Как"),
+                delta(" дела? Всё"),
+                delta(" хорошо. Ну…"),
+                delta(" а ты"),
+                delta("\nпока")
+        ));
+
+        String answer = client(0).chatStream(prompt(), 64, 0.5f, sentences::add);
+
+        assertEquals("Привет! Как дела? Всё хорошо. Ну… а ты\nпока", answer);
+        assertEquals(List.of("Привет!", "Как дела?", "Всё хорошо.", "Ну…", "а ты", "пока"), sentences);
+
+        RecordedRequest request = server.takeRequest(1, TimeUnit.SECONDS);
+        assertEquals("text/event-stream", request.getHeader("Accept"));
+        assertTrue(request.getBody().readUtf8().contains("\"stream\":true"));
+    }
+
+    @Test
+    void longTextWithoutPunctuationIsFlushedAfter200Chars() {
+        StringBuilder text = new StringBuilder();
+        List<String> deltas = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String word = (i == 0 ? "" : " ") + "слово";
+            text.append(word);
+            deltas.add(delta(word));
+        }
+        server.enqueue(stream(deltas.toArray(new String[0])));
+
+        String answer = client(0).chatStream(prompt(), 64, 0.5f, sentences::add);
+
+        assertEquals(text.toString(), answer);
+        // Cut at the first space once the part has reached 200 chars
+        assertEquals(2, sentences.size());
+        int first = sentences.get(0).length();
+        assertTrue(first >= 199 && first < 200 + "слово".length(), "first part is " + first + " chars");
+        assertEquals(text.toString(), sentences.get(0) + " " + sentences.get(1));
+    }
+
+    @Test
+    void maxCharsStopsReadingTheStream() {
+        // MockWebServer throttles the request body too, the padding comment keeps the first period
+        // larger than the request
+        String head = events(": " + "-".repeat(1024), delta("Hello world. "), delta("Second sentence here"));
+        String tail = events(delta(" never read"), "data: [DONE]");
+        // The tail arrives only after a long pause, reading it would blow the time limit
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(head + tail)
+                .throttleBody(head.getBytes(StandardCharsets.UTF_8).length, TAIL_DELAY_SECONDS, TimeUnit.SECONDS));
+
+        String answer = assertTimeoutPreemptively(Duration.ofSeconds(TAIL_DELAY_SECONDS - 1),
+                () -> client(20).chatStream(prompt(), 64, 0.5f, sentences::add));
+
+        assertEquals("Hello world. Second", answer);
+        assertEquals(List.of("Hello world.", "Second"), sentences);
+    }
+
+    @Test
+    void doneCommentsAndMalformedChunksAreSkipped() {
+        server.enqueue(stream(
+                ": keep-alive",
+                "event: message",
+                delta("Один."),
+                "data: {not json",
+                "data: {\"choices\":[]}",
+                "data: {\"choices\":[{\"delta\":{\"role\":\"assistant\"}}]}",
+                "id: 7",
+                delta(" Два."),
+                "data: [DONE]",
+                delta(" Три.")
+        ));
+
+        String answer = client(0).chatStream(prompt(), 64, 0.5f, sentences::add);
+
+        assertEquals("Один. Два.", answer);
+        assertEquals(List.of("Один.", "Два."), sentences);
+    }
+
+    @Test
+    void errorResponseReturnsNull() {
+        server.enqueue(new MockResponse().setResponseCode(503).setBody("model is loading"));
+
+        String answer = client(0).chatStream(prompt(), 64, 0.5f, sentences::add);
+
+        assertNull(answer);
+        assertTrue(sentences.isEmpty());
+    }
+
+    private HuggingFaceClient client(int maxChars) {
+        return new HuggingFaceClient(server.url("/v1").toString(), "test-model", "token", TIMEOUT_MS, maxChars);
+    }
+
+    private static List<ChatMessage> prompt() {
+        return List.of(new ChatMessage("user", "Steve: привет"));
+    }
+
+    private static MockResponse stream(String... lines) {
+        return new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setChunkedBody(events(lines), CHUNK_BYTES);
+    }
+
+    /**
+     * Each line is one SSE event, events are separated by a blank line
+     */
+    private static String events(String... lines) {
+        StringBuilder body = new StringBuilder();
+        for (String line : lines) {
+            body.append(line).append("\n\n");
+        }
+        return body.toString();
+    }
+
+    private static String delta(String content) {
+        JsonObject delta = new JsonObject();
+        delta.addProperty("content", content);
+        JsonObject choice = new JsonObject();
+        choice.add("delta", delta);
+        JsonArray choices = new JsonArray();
+        choices.add(choice);
+        JsonObject chunk = new JsonObject();
+        chunk.add("choices", choices);
+        return "data: " + chunk;
+    }
+}
@@ -0,0 +1,44 @@
+package com.launcher.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Заранее сериализованное тело ответа для одной версии снимка:
+ * UTF-8 байты, их gzip-версия и ETag
+ */
+class CachedBody {
+    // Меньшие ответы не сжимаем - заголовки gzip съедят всю экономию
+    private static final int MIN_GZIP_SIZE = 512;
+
+    final byte[] identity;
+    final byte[] gzip; // null, если сжатие не выгодно
+    final String etag;
+    final String gzipEtag;
+
+    CachedBody(String json, String tag) {
+        this.identity = json.getBytes(StandardCharsets.UTF_8);
+        this.gzip = compress(identity);
+        // Разные представления одного ресурса должны иметь разные strong ETag
+        this.etag = "\"" + tag + "\"";
+        this.gzipEtag = "\"" + tag + "-gz\"";
+    }
+
+    private static byte[] compress(byte[] data) {
+        if (data.length < MIN_GZIP_SIZE) {
+            return null;
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+            try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+                gzipOut.write(data);
+            }
+            byte[] compressed = out.toByteArray();
+            return compressed.length < data.length ? compressed : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -3,150 +3,435 @@ package com.launcher.api;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.launcher.api.model.PlayerInfo;
-import net.minecraft.server.MinecraftServer;
-import net.minecraft.server.network.ServerPlayerEntity;
+import com.launcher.api.model.PlayerSnapshot;
 
-import java.io.*;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * HTTP API на неблокирующем NIO: один поток event loop обслуживает все соединения,
+ * поэтому число потоков не зависит от количества подключенных лаунчеров.
+ * Поддерживает keep-alive и pipelining HTTP/1.1. Тела ответов сериализуются один раз
+ * на версию снимка и отдаются с ETag (304 на If-None-Match) и, при желании клиента, в gzip.
+ * /api/stream отдает изменения списка игроков как Server-Sent Events
+ */
 public class HttpApiServer {
+    public static final int DEFAULT_MAX_CONNECTIONS = 256;
+    public static final int DEFAULT_IDLE_TIMEOUT_MS = 60_000;
+    public static final int DEFAULT_MAX_REQUESTS_PER_CONNECTION = 1000;
+    // Как часто проверяем простаивающие соединения
+    private static final long IDLE_SWEEP_INTERVAL_MS = 1000;
+    // Комментарий-пинг в потоке событий, чтобы прокси и клиент не считали его мертвым
+    private static final long STREAM_HEARTBEAT_MS = 15_000;
+    // Сколько неотправленных событий держим для медленного подписчика, прежде чем отключить его
+    private static final int MAX_STREAM_BACKLOG = 256;
+
     private final int port;
-    private final MinecraftServer server;
-    private ServerSocket serverSocket;
-    private ExecutorService executorService;
+    private final int maxConnections;
+    private final int idleTimeoutMs;
+    private final int maxRequestsPerConnection;
+    private final PlayerSnapshotPublisher snapshots;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread eventLoop;
     private volatile boolean running = false;
+    private int openConnections = 0; // изменяется только потоком event loop
+    private long lastIdleSweep = 0;
     private final Gson gson = new Gson();
 
-    public HttpApiServer(int port, MinecraftServer server) {
+    // Кэш сериализованных ответов для одной версии снимка (только поток event loop)
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+    private long cachedVersion = -1;
+    private CachedBody cachedPlayers;
+    private CachedBody cachedStatus;
+    private final Map<String, CachedBody> cachedPlayerBodies = new HashMap<>();
+
+    // События для /api/stream: публикуются с любого потока, рассылаются потоком event loop
+    private final Queue<ByteBuffer> pendingEvents = new ConcurrentLinkedQueue<>();
+    private final Set<SelectionKey> streamKeys = new HashSet<>();
+    private final AtomicLong eventIds = new AtomicLong();
+    private volatile int streamSubscribers = 0;
+    private long lastHeartbeat = 0;
+
+    public HttpApiServer(int port, PlayerSnapshotPublisher snapshots) {
+        this(port, snapshots, DEFAULT_MAX_CONNECTIONS, DEFAULT_IDLE_TIMEOUT_MS, DEFAULT_MAX_REQUESTS_PER_CONNECTION);
+    }
+
+    public HttpApiServer(int port, PlayerSnapshotPublisher snapshots, int maxConnections, int idleTimeoutMs, int maxRequestsPerConnection) {
         this.port = port;
-        this.server = server;
+        this.snapshots = snapshots;
+        this.maxConnections = maxConnections;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.maxRequestsPerConnection = maxRequestsPerConnection;
     }
 
     public void start() throws IOException {
-        serverSocket = new ServerSocket(port);
-        executorService = Executors.newCachedThreadPool();
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
         running = true;
-        
-        executorService.submit(() -> {
-            while (running) {
-                try {
-                    Socket clientSocket = serverSocket.accept();
-                    executorService.submit(() -> handleRequest(clientSocket));
-                } catch (IOException e) {
-                    if (running) {
-                        LauncherApiMod.LOGGER.error("Ошибка принятия соединения:", e);
+
+        eventLoop = new Thread(this::runEventLoop, "LauncherAPI-EventLoop");
+        eventLoop.setDaemon(true);
+        eventLoop.start();
+    }
+
+    public void stop() throws IOException {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (eventLoop != null) {
+            try {
+                eventLoop.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void runEventLoop() {
+        while (running) {
+            try {
+                selector.select(IDLE_SWEEP_INTERVAL_MS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        acceptConnections();
+                        continue;
+                    }
+                    try {
+                        if (key.isReadable()) {
+                            handleRead(key);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            handleWrite(key);
+                        }
+                    } catch (IOException | CancelledKeyException e) {
+                        closeConnection(key);
                     }
                 }
+                broadcastPendingEvents();
+                sendHeartbeats();
+                closeIdleConnections();
+            } catch (IOException e) {
+                if (running) {
+                    LauncherApiMod.LOGGER.error("Ошибка event loop HTTP API:", e);
+                }
             }
-        });
+        }
+        closeAll();
     }
 
-    public void stop() throws IOException {
-        running = false;
-        if (serverSocket != null && !serverSocket.isClosed()) {
-            serverSocket.close();
+    /**
+     * Публикует событие для всех подписчиков /api/stream. Можно вызывать с любого потока
+     */
+    public void publishEvent(String event, String json) {
+        if (!running || streamSubscribers == 0) {
+            return;
         }
-        if (executorService != null) {
-            executorService.shutdown();
+        String frame = "id: " + eventIds.incrementAndGet() + "\n" +
+                "event: " + event + "\n" +
+                "data: " + json + "\n\n";
+        pendingEvents.add(ByteBuffer.wrap(frame.getBytes(StandardCharsets.UTF_8)));
+        selector.wakeup();
+    }
+
+    public boolean hasStreamSubscribers() {
+        return streamSubscribers > 0;
+    }
+
+    private void broadcastPendingEvents() {
+        ByteBuffer frame;
+        while ((frame = pendingEvents.poll()) != null) {
+            broadcast(frame);
         }
     }
 
-    private void handleRequest(Socket clientSocket) {
-        try (BufferedReader in = new BufferedReader(
-                new InputStreamReader(clientSocket.getInputStream(), StandardCharsets.UTF_8));
-             PrintWriter out = new PrintWriter(
-                new OutputStreamWriter(clientSocket.getOutputStream(), StandardCharsets.UTF_8), true)) {
-            
-            // Читаем HTTP запрос
-            String requestLine = in.readLine();
-            if (requestLine == null) {
-                return;
+    private void sendHeartbeats() {
+        long now = System.currentTimeMillis();
+        // Пинг должен приходить чаще, чем срабатывает таймаут простоя
+        if (now - lastHeartbeat < Math.min(STREAM_HEARTBEAT_MS, idleTimeoutMs / 2)) {
+            return;
+        }
+        lastHeartbeat = now;
+        if (!streamKeys.isEmpty()) {
+            broadcast(ByteBuffer.wrap(": ping\n\n".getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private void broadcast(ByteBuffer frame) {
+        for (SelectionKey key : new ArrayList<>(streamKeys)) {
+            HttpConnection connection = (HttpConnection) key.attachment();
+            if (connection == null) {
+                continue;
             }
-            
-            String[] requestParts = requestLine.split(" ");
-            if (requestParts.length < 2) {
-                sendErrorResponse(out, 400, "Bad Request");
+            if (connection.pendingWriteCount() >= MAX_STREAM_BACKLOG) {
+                // Подписчик не успевает читать - отключаем, он переподключится и получит свежий снимок
+                closeConnection(key);
+                continue;
+            }
+            // Все подписчики делят одни байты, у каждого своя позиция
+            connection.enqueue(frame.duplicate());
+            try {
+                connection.flush();
+                key.interestOps(connection.hasPendingWrites() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            } catch (IOException | CancelledKeyException e) {
+                closeConnection(key);
+            }
+        }
+    }
+
+    /**
+     * Закрывает keep-alive соединения, по которым давно ничего не приходило
+     */
+    private void closeIdleConnections() {
+        long now = System.currentTimeMillis();
+        if (now - lastIdleSweep < IDLE_SWEEP_INTERVAL_MS) {
+            return;
+        }
+        lastIdleSweep = now;
+        long deadline = now - idleTimeoutMs;
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof HttpConnection connection && connection.isIdleSince(deadline)) {
+                closeConnection(key);
+            }
+        }
+    }
+
+    private void acceptConnections() {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                if (running) {
+                    LauncherApiMod.LOGGER.error("Ошибка принятия соединения:", e);
+                }
                 return;
             }
-            
-            String method = requestParts[0];
-            String path = requestParts[1];
-            
-            // Читаем остальные заголовки
-            String line;
-            while ((line = in.readLine()) != null && !line.isEmpty()) {
-                // Игнорируем заголовки
+            if (channel == null) {
+                return;
             }
-            
-            // Обрабатываем запрос
-            if (method.equals("GET")) {
-                if (path.equals("/api/players") || path.equals("/api/players/")) {
-                    handleGetPlayers(out);
-                } else if (path.startsWith("/api/player/")) {
-                    String playerName = path.substring("/api/player/".length());
-                    handleGetPlayer(out, playerName);
-                } else if (path.equals("/api/status") || path.equals("/api/status/")) {
-                    handleGetStatus(out);
-                } else {
-                    sendErrorResponse(out, 404, "Not Found");
+            try {
+                channel.configureBlocking(false);
+                if (openConnections >= maxConnections) {
+                    // Лимит соединений исчерпан - отвечаем 503 и сразу закрываем
+                    channel.write(buildErrorResponse(503, "Service Unavailable"));
+                    channel.close();
+                    continue;
+                }
+                channel.socket().setTcpNoDelay(true);
+                channel.register(selector, SelectionKey.OP_READ, new HttpConnection(channel));
+                openConnections++;
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Игнорируем
                 }
-            } else {
-                sendErrorResponse(out, 405, "Method Not Allowed");
             }
-            
-        } catch (IOException e) {
-            LauncherApiMod.LOGGER.error("Ошибка обработки запроса:", e);
-        } finally {
+        }
+    }
+
+    private void handleRead(SelectionKey key) throws IOException {
+        HttpConnection connection = (HttpConnection) key.attachment();
+        if (!connection.read()) {
+            closeConnection(key);
+            return;
+        }
+        if (connection.streaming) {
+            connection.discardInput();
+            return;
+        }
+        processRequests(key);
+    }
+
+    private void handleWrite(SelectionKey key) throws IOException {
+        HttpConnection connection = (HttpConnection) key.attachment();
+        connection.flush();
+        if (connection.hasPendingWrites()) {
+            return;
+        }
+        // Ответ ушел полностью - разбираем запросы, которые клиент успел прислать следом
+        processRequests(key);
+    }
+
+    /**
+     * Pipelining: обрабатывает все полностью полученные запросы по порядку.
+     * Следующий запрос берем только когда предыдущий ответ ушел в сокет целиком,
+     * чтобы клиент, который не читает ответы, не раздувал очередь записи
+     */
+    private void processRequests(SelectionKey key) throws IOException {
+        HttpConnection connection = (HttpConnection) key.attachment();
+        String head;
+        while (!connection.isClosing() && !connection.streaming && !connection.hasPendingWrites()
+                && (head = connection.pollRequestHead()) != null) {
+            handleRequest(connection, head);
+            connection.flush();
+        }
+        if (connection.streaming && !streamKeys.contains(key)) {
+            streamKeys.add(key);
+            streamSubscribers = streamKeys.size();
+        }
+        if (!connection.isClosing() && !connection.streaming && !connection.hasPendingWrites() && connection.isRequestTooLarge()) {
+            connection.keepAlive = false;
+            connection.closeAfterWrite();
+            sendErrorResponse(connection, 431, "Request Header Fields Too Large");
+            connection.flush();
+        }
+
+        if (connection.shouldClose()) {
+            closeConnection(key);
+            return;
+        }
+        // Пока есть что дописать, ждем только OP_WRITE
+        key.interestOps(connection.hasPendingWrites() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    private void closeConnection(SelectionKey key) {
+        key.cancel();
+        if (streamKeys.remove(key)) {
+            streamSubscribers = streamKeys.size();
+        }
+        if (key.attachment() instanceof HttpConnection connection) {
             try {
-                clientSocket.close();
+                connection.channel.close();
             } catch (IOException e) {
                 // Игнорируем
             }
+            openConnections--;
+            key.attach(null);
         }
     }
 
-    private void handleGetPlayers(PrintWriter out) {
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            closeConnection(key);
+        }
         try {
-            List<PlayerInfo> players = new ArrayList<>();
-            
-            if (server != null && server.getPlayerManager() != null) {
-                for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
-                    PlayerInfo info = PlayerInfo.fromPlayer(player);
-                    players.add(info);
-                }
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            // Игнорируем
+        }
+    }
+
+    private void handleRequest(HttpConnection out, String head) {
+        HttpRequest request = HttpRequest.parse(head);
+        if (request == null || request.hasBody()) {
+            // Без корректных заголовков или с телом запроса не можем найти границу
+            // следующего запроса, поэтому отвечаем и закрываем соединение
+            out.keepAlive = false;
+            out.closeAfterWrite();
+            sendErrorResponse(out, request == null ? 400 : 405, request == null ? "Bad Request" : "Method Not Allowed");
+            return;
+        }
+
+        String method = request.method;
+        String path = request.path;
+
+        int requestNumber = out.nextRequest();
+        // Поток событий живет, пока его не закроет клиент, лимит запросов к нему не относится
+        boolean stream = method.equals("GET") && (path.equals("/api/stream") || path.equals("/api/stream/"));
+        out.keepAlive = running && (stream || (request.isKeepAlive() && requestNumber < maxRequestsPerConnection));
+        if (!out.keepAlive) {
+            out.closeAfterWrite();
+        }
+
+        // Обрабатываем запрос
+        if (method.equals("GET")) {
+            if (path.equals("/api/players") || path.equals("/api/players/")) {
+                handleGetPlayers(out, request);
+            } else if (path.startsWith("/api/player/")) {
+                String playerName = path.substring("/api/player/".length());
+                handleGetPlayer(out, request, playerName);
+            } else if (path.equals("/api/status") || path.equals("/api/status/")) {
+                handleGetStatus(out, request);
+            } else if (stream) {
+                handleStream(out);
+            } else {
+                sendErrorResponse(out, 404, "Not Found");
+            }
+        } else {
+            sendErrorResponse(out, 405, "Method Not Allowed");
+        }
+    }
+
+    /**
+     * Сбрасывает кэш ответов, если с прошлого запроса вышел новый снимок
+     */
+    private PlayerSnapshot currentSnapshot() {
+        PlayerSnapshot snapshot = snapshots.current();
+        if (snapshot.version != cachedVersion) {
+            cachedVersion = snapshot.version;
+            cachedPlayers = null;
+            cachedStatus = null;
+            cachedPlayerBodies.clear();
+        }
+        return snapshot;
+    }
+
+    private String etagFor(PlayerSnapshot snapshot) {
+        return bootId + "-" + snapshot.version;
+    }
+
+    private void handleGetPlayers(HttpConnection out, HttpRequest request) {
+        try {
+            PlayerSnapshot snapshot = currentSnapshot();
+            if (cachedPlayers == null) {
+                JsonObject response = new JsonObject();
+                response.addProperty("success", true);
+                response.addProperty("online", snapshot.getOnline());
+                response.addProperty("max", snapshot.maxPlayers);
+                response.add("players", gson.toJsonTree(snapshot.players));
+                cachedPlayers = new CachedBody(response.toString(), etagFor(snapshot));
             }
             
-            JsonObject response = new JsonObject();
-            response.addProperty("success", true);
-            response.addProperty("online", players.size());
-            response.addProperty("max", server != null ? server.getPlayerManager().getMaxPlayerCount() : 0);
-            response.add("players", gson.toJsonTree(players));
-            
-            sendJsonResponse(out, 200, response.toString());
+            sendCachedResponse(out, request, cachedPlayers);
         } catch (Exception e) {
             LauncherApiMod.LOGGER.error("Ошибка получения списка игроков:", e);
             sendErrorResponse(out, 500, "Internal Server Error");
         }
     }
 
-    private void handleGetPlayer(PrintWriter out, String playerName) {
+    private void handleGetPlayer(HttpConnection out, HttpRequest request, String playerName) {
         try {
-            if (server != null && server.getPlayerManager() != null) {
-                ServerPlayerEntity player = server.getPlayerManager().getPlayer(playerName);
-                if (player != null) {
-                    PlayerInfo info = PlayerInfo.fromPlayer(player);
+            PlayerSnapshot snapshot = currentSnapshot();
+            PlayerInfo info = snapshot.getPlayer(playerName);
+            if (info != null) {
+                CachedBody body = cachedPlayerBodies.computeIfAbsent(info.name.toLowerCase(Locale.ROOT), key -> {
                     JsonObject response = new JsonObject();
                     response.addProperty("success", true);
                     response.add("player", gson.toJsonTree(info));
-                    sendJsonResponse(out, 200, response.toString());
-                    return;
-                }
+                    return new CachedBody(response.toString(), etagFor(snapshot));
+                });
+                sendCachedResponse(out, request, body);
+                return;
             }
             
             sendErrorResponse(out, 404, "Player not found");
@@ -156,53 +441,130 @@ public class HttpApiServer {
         }
     }
 
-    private void handleGetStatus(PrintWriter out) {
-        JsonObject response = new JsonObject();
-        response.addProperty("success", true);
-        response.addProperty("online", server != null && server.getPlayerManager() != null 
-            ? server.getPlayerManager().getCurrentPlayerCount() : 0);
-        response.addProperty("max", server != null ? server.getPlayerManager().getMaxPlayerCount() : 0);
-        response.addProperty("version", server != null ? server.getVersion() : "unknown");
+    private void handleGetStatus(HttpConnection out, HttpRequest request) {
+        PlayerSnapshot snapshot = currentSnapshot();
+        if (cachedStatus == null) {
+            JsonObject response = new JsonObject();
+            response.addProperty("success", true);
+            response.addProperty("online", snapshot.getOnline());
+            response.addProperty("max", snapshot.maxPlayers);
+            response.addProperty("version", snapshot.serverVersion);
+            cachedStatus = new CachedBody(response.toString(), etagFor(snapshot));
+        }
         
-        sendJsonResponse(out, 200, response.toString());
+        sendCachedResponse(out, request, cachedStatus);
     }
 
-    private void sendJsonResponse(PrintWriter out, int statusCode, String json) {
-        try {
-            byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
-            out.print("HTTP/1.1 " + statusCode + " OK\r\n");
-            out.print("Content-Type: application/json; charset=UTF-8\r\n");
-            out.print("Access-Control-Allow-Origin: *\r\n");
-            out.print("Access-Control-Allow-Methods: GET, OPTIONS\r\n");
-            out.print("Access-Control-Allow-Headers: Content-Type\r\n");
-            out.print("Content-Length: " + jsonBytes.length + "\r\n");
-            out.print("Connection: close\r\n");
-            out.print("\r\n");
-            out.print(json);
-            out.flush();
-        } catch (Exception e) {
-            LauncherApiMod.LOGGER.error("Error sending JSON response:", e);
+    /**
+     * Переводит соединение в режим Server-Sent Events. Первым событием уходит
+     * полный список игроков, дальше только изменения (join, leave, achievements, playtime)
+     */
+    private void handleStream(HttpConnection out) {
+        out.streaming = true;
+        PlayerSnapshot snapshot = currentSnapshot();
+        JsonObject players = new JsonObject();
+        players.addProperty("success", true);
+        players.addProperty("online", snapshot.getOnline());
+        players.addProperty("max", snapshot.maxPlayers);
+        players.add("players", gson.toJsonTree(snapshot.players));
+
+        String headers = "HTTP/1.1 200 " + reasonPhrase(200) + "\r\n" +
+                "Content-Type: text/event-stream; charset=UTF-8\r\n" +
+                "Access-Control-Allow-Origin: *\r\n" +
+                "Cache-Control: no-cache\r\n" +
+                "Connection: keep-alive\r\n" +
+                "\r\n";
+        String firstEvent = "retry: 5000\n" +
+                "id: " + eventIds.get() + "\n" +
+                "event: snapshot\n" +
+                "data: " + players + "\n\n";
+        out.enqueue(concat(headers, firstEvent.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Отдает готовое тело: 304 без тела, если у клиента уже есть эта версия,
+     * иначе 200 в gzip или без сжатия
+     */
+    private void sendCachedResponse(HttpConnection out, HttpRequest request, CachedBody body) {
+        boolean useGzip = body.gzip != null && request.acceptsGzip();
+        String etag = useGzip ? body.gzipEtag : body.etag;
+        String commonHeaders = "Content-Type: application/json; charset=UTF-8\r\n" +
+                "Access-Control-Allow-Origin: *\r\n" +
+                "Access-Control-Allow-Methods: GET, OPTIONS\r\n" +
+                "Access-Control-Allow-Headers: Content-Type, If-None-Match\r\n" +
+                "Access-Control-Expose-Headers: ETag\r\n" +
+                "Cache-Control: no-cache\r\n" +
+                "Vary: Accept-Encoding\r\n" +
+                "ETag: " + etag + "\r\n";
+
+        if (request.matchesEtag(etag)) {
+            String headers = "HTTP/1.1 304 " + reasonPhrase(304) + "\r\n" +
+                    commonHeaders +
+                    connectionHeaders(out.keepAlive) +
+                    "\r\n";
+            out.enqueue(concat(headers, new byte[0]));
+            return;
         }
+
+        byte[] bytes = useGzip ? body.gzip : body.identity;
+        String headers = "HTTP/1.1 200 " + reasonPhrase(200) + "\r\n" +
+                commonHeaders +
+                (useGzip ? "Content-Encoding: gzip\r\n" : "") +
+                "Content-Length: " + bytes.length + "\r\n" +
+                connectionHeaders(out.keepAlive) +
+                "\r\n";
+        out.enqueue(concat(headers, bytes));
     }
 
-    private void sendErrorResponse(PrintWriter out, int statusCode, String message) {
-        try {
-            JsonObject error = new JsonObject();
-            error.addProperty("success", false);
-            error.addProperty("error", message);
-            String json = error.toString();
-            byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
-            out.print("HTTP/1.1 " + statusCode + " OK\r\n");
-            out.print("Content-Type: application/json; charset=UTF-8\r\n");
-            out.print("Access-Control-Allow-Origin: *\r\n");
-            out.print("Content-Length: " + jsonBytes.length + "\r\n");
-            out.print("Connection: close\r\n");
-            out.print("\r\n");
-            out.print(json);
-            out.flush();
-        } catch (Exception e) {
-            LauncherApiMod.LOGGER.error("Error sending error response:", e);
+    private void sendErrorResponse(HttpConnection out, int statusCode, String message) {
+        out.enqueue(buildErrorResponse(statusCode, message, connectionHeaders(out.keepAlive)));
+    }
+
+    private static ByteBuffer buildErrorResponse(int statusCode, String message) {
+        return buildErrorResponse(statusCode, message, "Connection: close\r\n");
+    }
+
+    private static ByteBuffer buildErrorResponse(int statusCode, String message, String connectionHeaders) {
+        JsonObject error = new JsonObject();
+        error.addProperty("success", false);
+        error.addProperty("error", message);
+        byte[] jsonBytes = error.toString().getBytes(StandardCharsets.UTF_8);
+        String headers = "HTTP/1.1 " + statusCode + " " + reasonPhrase(statusCode) + "\r\n" +
+                "Content-Type: application/json; charset=UTF-8\r\n" +
+                "Access-Control-Allow-Origin: *\r\n" +
+                "Content-Length: " + jsonBytes.length + "\r\n" +
+                connectionHeaders +
+                "\r\n";
+        return concat(headers, jsonBytes);
+    }
+
+    private String connectionHeaders(boolean keepAlive) {
+        if (!keepAlive) {
+            return "Connection: close\r\n";
         }
+        return "Connection: keep-alive\r\n" +
+                "Keep-Alive: timeout=" + (idleTimeoutMs / 1000) + ", max=" + maxRequestsPerConnection + "\r\n";
     }
-}
 
+    private static ByteBuffer concat(String headers, byte[] body) {
+        byte[] headerBytes = headers.getBytes(StandardCharsets.ISO_8859_1);
+        ByteBuffer buffer = ByteBuffer.allocate(headerBytes.length + body.length);
+        buffer.put(headerBytes).put(body);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String reasonPhrase(int statusCode) {
+        return switch (statusCode) {
+            case 200 -> "OK";
+            case 304 -> "Not Modified";
+            case 400 -> "Bad Request";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 431 -> "Request Header Fields Too Large";
+            case 500 -> "Internal Server Error";
+            case 503 -> "Service Unavailable";
+            default -> "OK";
+        };
+    }
+}
@@ -0,0 +1,129 @@
+package com.launcher.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Состояние одного клиентского соединения. Используется только потоком event loop
+ */
+class HttpConnection {
+    // Максимальный размер заголовков запроса
+    static final int MAX_REQUEST_SIZE = 8192;
+
+    final SocketChannel channel;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(MAX_REQUEST_SIZE);
+    private final Deque<ByteBuffer> writeQueue = new ArrayDeque<>();
+    private boolean closeAfterWrite = false;
+    private int requestCount = 0;
+    private long lastActivity = System.currentTimeMillis();
+    // Оставлять ли соединение открытым после текущего ответа
+    boolean keepAlive = false;
+    // Соединение переведено в режим Server-Sent Events и больше не принимает запросы
+    boolean streaming = false;
+
+    HttpConnection(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Читает доступные байты из сокета. Возвращает false, если клиент закрыл соединение
+     */
+    boolean read() throws IOException {
+        lastActivity = System.currentTimeMillis();
+        return channel.read(readBuffer) != -1;
+    }
+
+    /**
+     * Увеличивает счетчик запросов и возвращает его новое значение
+     */
+    int nextRequest() {
+        return ++requestCount;
+    }
+
+    boolean isIdleSince(long deadline) {
+        return lastActivity < deadline;
+    }
+
+    /**
+     * Отбрасывает все прочитанные байты (клиент потока событий ничего не должен слать)
+     */
+    void discardInput() {
+        readBuffer.clear();
+    }
+
+    boolean isRequestTooLarge() {
+        return !readBuffer.hasRemaining();
+    }
+
+    /**
+     * Извлекает из буфера заголовок очередного полного запроса или возвращает null,
+     * если запрос еще не дочитан
+     */
+    String pollRequestHead() {
+        int end = indexOfHeaderEnd();
+        if (end == -1) {
+            return null;
+        }
+        byte[] head = new byte[end];
+        readBuffer.flip();
+        readBuffer.get(head);
+        readBuffer.position(readBuffer.position() + 4); // пропускаем \r\n\r\n
+        readBuffer.compact();
+        return new String(head, StandardCharsets.ISO_8859_1);
+    }
+
+    private int indexOfHeaderEnd() {
+        byte[] data = readBuffer.array();
+        int limit = readBuffer.position();
+        for (int i = 0; i + 3 < limit; i++) {
+            if (data[i] == '\r' && data[i + 1] == '\n' && data[i + 2] == '\r' && data[i + 3] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    void enqueue(ByteBuffer response) {
+        writeQueue.addLast(response);
+    }
+
+    void closeAfterWrite() {
+        closeAfterWrite = true;
+    }
+
+    boolean isClosing() {
+        return closeAfterWrite;
+    }
+
+    boolean shouldClose() {
+        return closeAfterWrite && writeQueue.isEmpty();
+    }
+
+    boolean hasPendingWrites() {
+        return !writeQueue.isEmpty();
+    }
+
+    int pendingWriteCount() {
+        return writeQueue.size();
+    }
+
+    /**
+     * Пишет в сокет сколько получится без блокировки
+     */
+    void flush() throws IOException {
+        while (!writeQueue.isEmpty()) {
+            ByteBuffer buffer = writeQueue.peekFirst();
+            if (channel.write(buffer) > 0) {
+                lastActivity = System.currentTimeMillis();
+            }
+            if (buffer.hasRemaining()) {
+                return; // буфер сокета заполнен, продолжим при OP_WRITE
+            }
+            writeQueue.pollFirst();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.launcher.api;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Разобранный HTTP запрос (строка запроса и заголовки, без тела)
+ */
+class HttpRequest {
+    final String method;
+    final String path;
+    final String version;
+    // Имена заголовков хранятся в нижнем регистре
+    private final Map<String, String> headers;
+
+    HttpRequest(String method, String path, String version, Map<String, String> headers) {
+        this.method = method;
+        this.path = path;
+        this.version = version;
+        this.headers = headers;
+    }
+
+    /**
+     * Разбирает заголовок запроса. Возвращает null, если запрос некорректен
+     */
+    static HttpRequest parse(String head) {
+        String[] lines = head.split("\r\n");
+        String[] requestParts = lines[0].split(" ");
+        if (requestParts.length < 2) {
+            return null;
+        }
+        String version = requestParts.length > 2 ? requestParts[2] : "HTTP/1.0";
+
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i];
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                return null;
+            }
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            // Повторяющиеся заголовки склеиваем через запятую (RFC 9110)
+            headers.merge(name, value, (a, b) -> a + ", " + b);
+        }
+        return new HttpRequest(requestParts[0], requestParts[1], version, headers);
+    }
+
+    String header(String name) {
+        return headers.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Есть ли у запроса тело. API принимает только запросы без тела
+     */
+    boolean hasBody() {
+        String contentLength = header("Content-Length");
+        return header("Transfer-Encoding") != null
+                || (contentLength != null && !contentLength.equals("0"));
+    }
+
+    boolean acceptsGzip() {
+        String acceptEncoding = header("Accept-Encoding");
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().toLowerCase(Locale.ROOT).split(";");
+            if (parts[0].trim().equals("gzip")) {
+                // gzip;q=0 означает явный отказ
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Есть ли ETag среди If-None-Match (слабое сравнение, как требует RFC 9110)
+     */
+    boolean matchesEtag(String etag) {
+        String ifNoneMatch = header("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Хочет ли клиент сохранить соединение: в HTTP/1.1 по умолчанию да,
+     * в HTTP/1.0 только с явным Connection: keep-alive
+     */
+    boolean isKeepAlive() {
+        String connection = header("Connection");
+        String token = connection != null ? connection.toLowerCase(Locale.ROOT) : "";
+        if (version.equals("HTTP/1.1")) {
+            return !token.contains("close");
+        }
+        return token.contains("keep-alive");
+    }
+}
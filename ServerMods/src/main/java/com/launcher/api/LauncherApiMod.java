@@ -1,7 +1,11 @@
 package com.launcher.api;
 
+import com.launcher.shared.AdvancementCounter;
+import com.launcher.shared.SkinTextureCache;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import net.minecraft.server.MinecraftServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,8 +14,22 @@ public class LauncherApiMod implements ModInitializer {
     public static final String MOD_ID = "launcherapi";
     public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
     
+    // Лимит одновременных HTTP соединений (-Dlauncherapi.maxConnections=...)
+    private static final int MAX_CONNECTIONS = Integer.getInteger("launcherapi.maxConnections", HttpApiServer.DEFAULT_MAX_CONNECTIONS);
+    // Сколько держим простаивающее keep-alive соединение (-Dlauncherapi.idleTimeoutMs=...)
+    private static final int IDLE_TIMEOUT_MS = Integer.getInteger("launcherapi.idleTimeoutMs", HttpApiServer.DEFAULT_IDLE_TIMEOUT_MS);
+    // Сколько запросов обслуживаем по одному соединению (-Dlauncherapi.maxRequestsPerConnection=...)
+    private static final int MAX_REQUESTS_PER_CONNECTION = Integer.getInteger("launcherapi.maxRequestsPerConnection", HttpApiServer.DEFAULT_MAX_REQUESTS_PER_CONNECTION);
+    // Как часто (в тиках) обновляется снимок игроков для API (-Dlauncherapi.snapshotIntervalTicks=...)
+    private static final int SNAPSHOT_INTERVAL_TICKS = Integer.getInteger("launcherapi.snapshotIntervalTicks", PlayerSnapshotPublisher.DEFAULT_INTERVAL_TICKS);
+    // Как часто (в тиках) снимок обновляется, если изменилось только время игры (-Dlauncherapi.playTimeRefreshTicks=...)
+    private static final int PLAY_TIME_REFRESH_TICKS = Integer.getInteger("launcherapi.playTimeRefreshTicks", PlayerSnapshotPublisher.DEFAULT_PLAY_TIME_REFRESH_TICKS);
+    // Как часто (в тиках) /api/stream рассылает время игры (-Dlauncherapi.streamPlaytimeIntervalTicks=...)
+    private static final int STREAM_PLAYTIME_INTERVAL_TICKS = Integer.getInteger("launcherapi.streamPlaytimeIntervalTicks", PlayerEventStream.DEFAULT_PLAYTIME_INTERVAL_TICKS);
+    
     private static MinecraftServer server;
-    private static HttpApiServer httpServer;
+    private static volatile HttpApiServer httpServer;
+    private static final PlayerSnapshotPublisher snapshotPublisher = new PlayerSnapshotPublisher(SNAPSHOT_INTERVAL_TICKS, PLAY_TIME_REFRESH_TICKS);
 
     @Override
     public void onInitialize() {
@@ -20,6 +38,18 @@ public class LauncherApiMod implements ModInitializer {
         // Регистрируем обработчик подключения игроков
         PlayerJoinHandler.register();
         
+        // Инкрементальный счетчик достижений (общий с Discord модом)
+        AdvancementCounter.register();
+        SkinTextureCache.register();
+        
+        // События для /api/stream
+        PlayerEventStream.register(STREAM_PLAYTIME_INTERVAL_TICKS);
+        
+        // Снимок игроков для API собирается только на главном потоке сервера
+        ServerTickEvents.END_SERVER_TICK.register(snapshotPublisher::tick);
+        ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> snapshotPublisher.requestPublish());
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> snapshotPublisher.requestPublish());
+        
         ServerLifecycleEvents.SERVER_STARTING.register(server -> {
             LauncherApiMod.server = server;
             LOGGER.info("Сервер запускается, инициализация HTTP API...");
@@ -29,7 +59,8 @@ public class LauncherApiMod implements ModInitializer {
             LauncherApiMod.server = server;
             try {
                 // Запускаем HTTP сервер на порту 30761
-                httpServer = new HttpApiServer(30761, server);
+                snapshotPublisher.publish(server);
+                httpServer = new HttpApiServer(30761, snapshotPublisher, MAX_CONNECTIONS, IDLE_TIMEOUT_MS, MAX_REQUESTS_PER_CONNECTION);
                 httpServer.start();
                 LOGGER.info("HTTP API сервер запущен на порту 30761");
             } catch (Exception e) {
@@ -52,5 +83,16 @@ public class LauncherApiMod implements ModInitializer {
     public static MinecraftServer getServer() {
         return server;
     }
+    
+    /**
+     * Просит обновить снимок игроков для API на ближайшем тике
+     */
+    public static void requestSnapshotPublish() {
+        snapshotPublisher.requestPublish();
+    }
+    
+    public static HttpApiServer getHttpServer() {
+        return httpServer;
+    }
 }
 
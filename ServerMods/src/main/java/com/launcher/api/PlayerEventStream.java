@@ -0,0 +1,120 @@
+package com.launcher.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.launcher.api.model.PlayerInfo;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Источник событий для /api/stream: вход и выход игроков, изменение числа
+ * достижений и периодическое обновление времени игры. Все методы вызываются
+ * с главного потока сервера, рассылкой занимается поток HTTP API
+ */
+public class PlayerEventStream {
+    public static final int DEFAULT_PLAYTIME_INTERVAL_TICKS = 1200; // раз в минуту
+
+    private static final Gson gson = new Gson();
+    // Последнее отправленное число достижений, чтобы слать событие только при изменении
+    private static final Map<UUID, Integer> achievementCounts = new HashMap<>();
+    // Игроки, у которых за тик поменялись достижения (пересчитываем один раз в конце тика)
+    private static final Set<ServerPlayerEntity> dirtyAdvancements = new LinkedHashSet<>();
+    private static int playtimeIntervalTicks = DEFAULT_PLAYTIME_INTERVAL_TICKS;
+    private static int ticksUntilPlaytime = DEFAULT_PLAYTIME_INTERVAL_TICKS;
+
+    public static void register(int intervalTicks) {
+        playtimeIntervalTicks = Math.max(1, intervalTicks);
+        ticksUntilPlaytime = playtimeIntervalTicks;
+
+        ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
+            ServerPlayerEntity player = handler.player;
+            PlayerInfo info = PlayerInfo.fromPlayer(player);
+            achievementCounts.put(player.getUuid(), info.achievements);
+            publish("join", gson.toJson(info));
+        });
+
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            ServerPlayerEntity player = handler.player;
+            achievementCounts.remove(player.getUuid());
+            dirtyAdvancements.remove(player);
+
+            JsonObject leave = new JsonObject();
+            leave.addProperty("name", player.getName().getString());
+            leave.addProperty("uuid", player.getUuid().toString());
+            publish("leave", leave.toString());
+        });
+
+        ServerTickEvents.END_SERVER_TICK.register(PlayerEventStream::tick);
+    }
+
+    /**
+     * Вызывается из миксина, когда у игрока выполнилось или отозвалось достижение
+     */
+    public static void onAdvancementsChanged(ServerPlayerEntity player) {
+        dirtyAdvancements.add(player);
+    }
+
+    private static void tick(MinecraftServer server) {
+        if (!dirtyAdvancements.isEmpty()) {
+            for (ServerPlayerEntity player : dirtyAdvancements) {
+                publishAchievements(player);
+            }
+            dirtyAdvancements.clear();
+        }
+
+        if (--ticksUntilPlaytime > 0) {
+            return;
+        }
+        ticksUntilPlaytime = playtimeIntervalTicks;
+        publishPlaytime(server);
+    }
+
+    private static void publishAchievements(ServerPlayerEntity player) {
+        int count = PlayerInfo.getAchievementsCount(player);
+        Integer previous = achievementCounts.put(player.getUuid(), count);
+        if (previous != null && previous == count) {
+            return;
+        }
+        JsonObject event = new JsonObject();
+        event.addProperty("uuid", player.getUuid().toString());
+        event.addProperty("achievements", count);
+        publish("achievements", event.toString());
+    }
+
+    /**
+     * Одно событие на всех игроков сразу, а не по событию на каждого
+     */
+    private static void publishPlaytime(MinecraftServer server) {
+        HttpApiServer httpServer = LauncherApiMod.getHttpServer();
+        if (httpServer == null || !httpServer.hasStreamSubscribers()
+                || server.getPlayerManager() == null || server.getPlayerManager().getPlayerList().isEmpty()) {
+            return;
+        }
+        JsonArray players = new JsonArray();
+        for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("uuid", player.getUuid().toString());
+            entry.addProperty("serverPlayTime", PlayerInfo.getServerPlayTime(player));
+            players.add(entry);
+        }
+        JsonObject event = new JsonObject();
+        event.add("players", players);
+        publish("playtime", event.toString());
+    }
+
+    private static void publish(String event, String json) {
+        HttpApiServer httpServer = LauncherApiMod.getHttpServer();
+        if (httpServer != null) {
+            httpServer.publishEvent(event, json);
+        }
+    }
+}
@@ -1,94 +1,168 @@
 package com.launcher.api;
 
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.minecraft.server.network.ServerPlayNetworkHandler;
 import net.minecraft.server.network.ServerPlayerEntity;
-import java.util.HashMap;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 public class PlayerJoinHandler {
     // Храним флаги лаунчера в памяти
     private static final Map<UUID, Boolean> launcherFlags = new ConcurrentHashMap<>();
     
+    // Версия лаунчера и capabilities из handshake клиента
+    private static final Map<UUID, LauncherHandshakePayload> handshakes = new ConcurrentHashMap<>();
+    
     // Храним время подключения игроков для проверки через задержку
     private static final Map<UUID, Long> joinTimes = new ConcurrentHashMap<>();
     
+    // Задержка перед проверкой через reflection (40 тиков = 2 секунды)
+    static final int REFLECTION_CHECK_DELAY_TICKS = 40;
+    
+    // Отложенные проверки в порядке входа игроков. Используется только главным потоком сервера
+    private static final TickDelayQueue<ServerPlayNetworkHandler> pendingChecks = new TickDelayQueue<>(REFLECTION_CHECK_DELAY_TICKS);
+    
+    // Сама проверка, которую запускает очередь. Тесты подменяют ее, чтобы обойтись без настоящего обработчика
+    static Consumer<ServerPlayNetworkHandler> launcherCheck = PlayerJoinHandler::runCheck;
+    
+    private static final String LAUNCHER_MOD_ID = "launcherclient";
+    
+    // Готовый доступ к containsMod для каждого класса обработчика (вычисляется один раз)
+    private static final ClassValue<MethodHandle> CONTAINS_LAUNCHER_MOD = new ClassValue<>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            return resolveContainsLauncherMod(type);
+        }
+    };
+    
     public static void register() {
+        // Клиентский мод сам сообщает о себе пакетом сразу после входа
+        PayloadTypeRegistry.playC2S().register(LauncherHandshakePayload.ID, LauncherHandshakePayload.CODEC);
+        ServerPlayNetworking.registerGlobalReceiver(LauncherHandshakePayload.ID, (payload, context) -> {
+            ServerPlayerEntity player = context.player();
+            handshakes.put(player.getUuid(), payload);
+            setLauncherFlag(player, true);
+            LauncherApiMod.requestSnapshotPublish();
+            LauncherApiMod.LOGGER.info("Player {} uses our launcher (version {}, capabilities {})",
+                    player.getName().getString(), payload.launcherVersion(), payload.capabilities());
+        });
+        
         // Обработчик подключения игрока
         ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
             ServerPlayerEntity player = handler.player;
-            UUID playerUuid = player.getUuid();
-            
-            // Устанавливаем флаг по умолчанию false
-            setLauncherFlag(player, false);
-            joinTimes.put(playerUuid, System.currentTimeMillis());
-            
             LauncherApiMod.LOGGER.debug("Player {} joined, will check for launcher mod...", player.getName().getString());
-            
-            // Проверяем через небольшую задержку, используя reflection для проверки мода
-            server.execute(() -> {
-                try {
-                    // Небольшая задержка для того, чтобы мод успел отправить пакет
-                    Thread.sleep(2000); // 2 секунды задержки
-                    
-                    // Проверяем, был ли установлен флаг через пакет
-                    // Если нет, пробуем через reflection
-                    if (!isFromLauncher(player)) {
-                        // Пробуем определить через reflection (старый способ как запасной)
-                        boolean hasLauncherMod = checkLauncherModViaReflection(handler);
-                        if (hasLauncherMod) {
-                            setLauncherFlag(player, true);
-                            LauncherApiMod.LOGGER.info("Player {} detected via reflection - using our launcher!", player.getName().getString());
-                        }
-                    }
-                } catch (InterruptedException e) {
-                    LauncherApiMod.LOGGER.debug("Thread interrupted");
-                } catch (Exception e) {
-                    LauncherApiMod.LOGGER.debug("Error checking launcher mod: {}", e.getMessage());
-                }
-            });
+            onJoin(player.getUuid(), handler, server.getTicks());
         });
         
+        ServerTickEvents.END_SERVER_TICK.register(server -> runDueChecks(server.getTicks()));
+        
         // Очищаем флаги при отключении игрока
         ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
             ServerPlayerEntity player = handler.player;
             UUID playerUuid = player.getUuid();
             launcherFlags.remove(playerUuid);
+            handshakes.remove(playerUuid);
             joinTimes.remove(playerUuid);
         });
     }
     
     /**
-     * Проверяет наличие клиентского мода через reflection (запасной способ)
+     * Вход игрока: флаг по умолчанию false и проверка в очередь. Если handshake не придет,
+     * проверяем через reflection не сразу, а через несколько тиков. Главный поток при этом не ждет
+     */
+    static void onJoin(UUID playerUuid, ServerPlayNetworkHandler handler, int tick) {
+        launcherFlags.put(playerUuid, false);
+        joinTimes.put(playerUuid, System.currentTimeMillis());
+        pendingChecks.schedule(handler, tick);
+    }
+    
+    /**
+     * Выполняет проверки, срок которых подошел
+     */
+    static void runDueChecks(int tick) {
+        pendingChecks.runDue(tick, handler -> launcherCheck.accept(handler));
+    }
+    
+    static int pendingCheckCount() {
+        return pendingChecks.size();
+    }
+    
+    private static void runCheck(ServerPlayNetworkHandler handler) {
+        ServerPlayerEntity player = handler.player;
+        if (player.isDisconnected()) {
+            return;
+        }
+        try {
+            // Проверяем, был ли установлен флаг через пакет
+            // Если нет, пробуем через reflection
+            if (!isFromLauncher(player)) {
+                // Пробуем определить через reflection (старый способ как запасной)
+                boolean hasLauncherMod = checkLauncherModViaReflection(handler);
+                if (hasLauncherMod) {
+                    setLauncherFlag(player, true);
+                    LauncherApiMod.LOGGER.info("Player {} detected via reflection - using our launcher!", player.getName().getString());
+                }
+            }
+        } catch (Exception e) {
+            LauncherApiMod.LOGGER.debug("Error checking launcher mod: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Проверяет наличие клиентского мода через reflection (запасной способ).
+     * Путь до containsMod ищется один раз на класс обработчика, дальше это один вызов MethodHandle
      */
     private static boolean checkLauncherModViaReflection(Object handler) {
+        MethodHandle containsLauncherMod = CONTAINS_LAUNCHER_MOD.get(handler.getClass());
+        if (containsLauncherMod == null) {
+            return false;
+        }
         try {
-            // Пробуем найти modList через reflection
-            java.lang.reflect.Field[] fields = handler.getClass().getDeclaredFields();
-            for (java.lang.reflect.Field field : fields) {
+            return (boolean) containsLauncherMod.invoke(handler);
+        } catch (Throwable e) {
+            // Поле не заполнено или вызов не удался - считаем, что мода нет
+            return false;
+        }
+    }
+    
+    /**
+     * Ищет в классе обработчика (и его родителях) поле, у типа которого есть boolean containsMod(String),
+     * и собирает из геттера поля и этого метода один MethodHandle (handler) -> boolean.
+     * null, если такого поля нет
+     */
+    private static MethodHandle resolveContainsLauncherMod(Class<?> handlerClass) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Class<?> type = handlerClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+                    continue;
+                }
                 try {
+                    MethodHandle containsMod = lookup.findVirtual(field.getType(), "containsMod",
+                            MethodType.methodType(boolean.class, String.class));
                     field.setAccessible(true);
-                    Object value = field.get(handler);
-                    if (value != null) {
-                        java.lang.reflect.Method[] methods = value.getClass().getMethods();
-                        for (java.lang.reflect.Method method : methods) {
-                            if (method.getName().equals("containsMod") && method.getParameterCount() == 1) {
-                                try {
-                                    boolean hasMod = (Boolean) method.invoke(value, "launcherclient");
-                                    if (hasMod) {
-                                        return true;
-                                    }
-                                } catch (Exception ignored) {}
-                            }
-                        }
-                    }
-                } catch (Exception ignored) {}
+                    MethodHandle getter = lookup.unreflectGetter(field);
+                    MethodHandle handle = MethodHandles.filterArguments(
+                            MethodHandles.insertArguments(containsMod, 1, LAUNCHER_MOD_ID), 0, getter);
+                    LauncherApiMod.LOGGER.info("Launcher mod detection via {}.{}", type.getSimpleName(), field.getName());
+                    return handle.asType(MethodType.methodType(boolean.class, Object.class));
+                } catch (NoSuchMethodException | IllegalAccessException | RuntimeException ignored) {
+                    // У этого поля нет подходящего метода или к нему нет доступа
+                }
             }
-        } catch (Exception e) {
-            // Игнорируем ошибки
         }
-        return false;
+        LauncherApiMod.LOGGER.debug("No containsMod accessor on {}, reflection detection disabled", handlerClass.getName());
+        return null;
     }
     
     /**
@@ -98,6 +172,22 @@ public class PlayerJoinHandler {
         launcherFlags.put(player.getUuid(), fromLauncher);
     }
     
+    /**
+     * Версия лаунчера из handshake или null, если клиент его не присылал
+     */
+    public static String getLauncherVersion(ServerPlayerEntity player) {
+        LauncherHandshakePayload handshake = handshakes.get(player.getUuid());
+        return handshake != null ? handshake.launcherVersion() : null;
+    }
+    
+    /**
+     * Объявил ли клиент в handshake указанный бит (LauncherHandshakePayload.CAPABILITY_*)
+     */
+    public static boolean hasCapability(ServerPlayerEntity player, int capability) {
+        LauncherHandshakePayload handshake = handshakes.get(player.getUuid());
+        return handshake != null && (handshake.capabilities() & capability) != 0;
+    }
+    
     /**
      * Проверяет, зашел ли игрок через наш лаунчер
      */
@@ -0,0 +1,81 @@
+package com.launcher.api;
+
+import com.launcher.api.model.PlayerInfo;
+import com.launcher.api.model.PlayerSnapshot;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Раз в несколько тиков собирает PlayerInfo всех игроков на главном потоке сервера
+ * и публикует неизменяемый снимок для HTTP API
+ */
+public class PlayerSnapshotPublisher {
+    public static final int DEFAULT_INTERVAL_TICKS = 20; // раз в секунду
+    // Время игры не входит в сравнение снимков, поэтому при неизменном составе
+    // игроков снимок обновляется ради него не чаще раза в 5 минут
+    public static final int DEFAULT_PLAY_TIME_REFRESH_TICKS = 6000;
+
+    private final int intervalTicks;
+    private final int playTimeRefreshTicks;
+    private volatile PlayerSnapshot current = PlayerSnapshot.EMPTY;
+    private int ticksUntilPublish = 0;
+    private int versionTick = 0;
+
+    public PlayerSnapshotPublisher(int intervalTicks, int playTimeRefreshTicks) {
+        this.intervalTicks = Math.max(1, intervalTicks);
+        this.playTimeRefreshTicks = Math.max(this.intervalTicks, playTimeRefreshTicks);
+    }
+
+    /**
+     * Вызывается в конце каждого тика сервера
+     */
+    public void tick(MinecraftServer server) {
+        if (--ticksUntilPublish > 0) {
+            return;
+        }
+        ticksUntilPublish = intervalTicks;
+        publish(server);
+    }
+
+    /**
+     * Просит обновить снимок на ближайшем тике (например, при входе или выходе игрока)
+     */
+    public void requestPublish() {
+        ticksUntilPublish = 0;
+    }
+
+    /**
+     * Собирает новый снимок. Должен вызываться только с главного потока сервера
+     */
+    public void publish(MinecraftServer server) {
+        try {
+            if (server.getPlayerManager() == null) {
+                return;
+            }
+            List<PlayerInfo> players = new ArrayList<>();
+            for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
+                players.add(PlayerInfo.fromPlayer(player));
+            }
+            int maxPlayers = server.getPlayerManager().getMaxPlayerCount();
+            String serverVersion = server.getVersion();
+
+            PlayerSnapshot previous = current;
+            int tick = server.getTicks();
+            if (previous != PlayerSnapshot.EMPTY && previous.hasSameContentExceptPlayTime(players, maxPlayers, serverVersion)
+                    && (players.isEmpty() || tick - versionTick < playTimeRefreshTicks)) {
+                return; // ничего не изменилось - версия остается прежней
+            }
+            versionTick = tick;
+            current = new PlayerSnapshot(previous.version + 1, players, maxPlayers, serverVersion);
+        } catch (Exception e) {
+            LauncherApiMod.LOGGER.error("Ошибка обновления снимка игроков:", e);
+        }
+    }
+
+    public PlayerSnapshot current() {
+        return current;
+    }
+}
@@ -0,0 +1,52 @@
+package com.launcher.api;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * Очередь отложенных на фиксированное число тиков задач. Не зависит от сервера:
+ * текущий тик передает вызывающий. Используется только главным потоком сервера
+ */
+public class TickDelayQueue<T> {
+    private final int delayTicks;
+    private final Deque<Entry<T>> entries = new ArrayDeque<>();
+
+    public TickDelayQueue(int delayTicks) {
+        this.delayTicks = Math.max(0, delayTicks);
+    }
+
+    /**
+     * Только ставит задачу в очередь, сама задача выполнится в runDue через delayTicks тиков
+     */
+    public void schedule(T item, int currentTick) {
+        entries.addLast(new Entry<>(item, currentTick + delayTicks));
+    }
+
+    /**
+     * Отдает в action задачи, срок которых подошел, и возвращает их число.
+     * Задержка у всех одинаковая, поэтому очередь упорядочена по сроку и смотреть нужно только ее начало
+     */
+    public int runDue(int currentTick, Consumer<T> action) {
+        int count = 0;
+        while (!entries.isEmpty() && entries.peekFirst().dueTick <= currentTick) {
+            action.accept(entries.pollFirst().item);
+            count++;
+        }
+        return count;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static class Entry<T> {
+        final T item;
+        final int dueTick;
+
+        Entry(T item, int dueTick) {
+            this.item = item;
+            this.dueTick = dueTick;
+        }
+    }
+}
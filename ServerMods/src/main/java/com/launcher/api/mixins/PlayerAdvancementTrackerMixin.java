@@ -0,0 +1,46 @@
+package com.launcher.api.mixins;
+
+import com.launcher.api.PlayerEventStream;
+import com.launcher.shared.AdvancementCounter;
+import net.minecraft.advancement.AdvancementEntry;
+import net.minecraft.advancement.AdvancementProgress;
+import net.minecraft.advancement.PlayerAdvancementTracker;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+/**
+ * Обновляет счетчик достижений и сообщает в /api/stream, что у игрока
+ * изменился набор выполненных достижений
+ */
+@Mixin(PlayerAdvancementTracker.class)
+public abstract class PlayerAdvancementTrackerMixin {
+
+    @Shadow private ServerPlayerEntity owner;
+
+    @Shadow
+    public abstract AdvancementProgress getProgress(AdvancementEntry advancement);
+
+    @Inject(method = "grantCriterion", at = @At("RETURN"))
+    private void launcherapi$onCriterionGranted(AdvancementEntry advancement, String criterionName, CallbackInfoReturnable<Boolean> cir) {
+        launcherapi$onProgressChanged(advancement, cir.getReturnValueZ());
+    }
+
+    @Inject(method = "revokeCriterion", at = @At("RETURN"))
+    private void launcherapi$onCriterionRevoked(AdvancementEntry advancement, String criterionName, CallbackInfoReturnable<Boolean> cir) {
+        launcherapi$onProgressChanged(advancement, cir.getReturnValueZ());
+    }
+
+    @Unique
+    private void launcherapi$onProgressChanged(AdvancementEntry advancement, boolean changed) {
+        // Считаются только видимые достижения, как в PlayerInfo
+        if (changed && advancement.value().display().isPresent()) {
+            AdvancementCounter.onProgressChanged(owner, advancement, getProgress(advancement));
+            PlayerEventStream.onAdvancementsChanged(owner);
+        }
+    }
+}
@@ -1,22 +1,23 @@
 package com.launcher.api.model;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.launcher.api.LauncherApiMod;
+import com.launcher.shared.AdvancementCounter;
+import com.launcher.shared.SkinTextureCache;
+import com.launcher.shared.SkinTextureCache.SkinTexture;
 import net.minecraft.server.network.ServerPlayerEntity;
 
-import java.util.Base64;
+import java.util.Objects;
 import java.util.UUID;
 
 public class PlayerInfo {
-    public String name;
-    public String uuid;
-    public String skinUrl;
-    public String headUrl;
-    public boolean online;
-    public int achievements;
-    public boolean fromLauncher;
-    public long serverPlayTime; // Время на сервере в секундах
+    public final String name;
+    public final String uuid;
+    public final String skinUrl;
+    public final String headUrl;
+    public final boolean online;
+    public final int achievements;
+    public final boolean fromLauncher;
+    public final long serverPlayTime; // Время на сервере в секундах
 
     public PlayerInfo(String name, String uuid, String skinUrl, String headUrl, boolean online, int achievements, boolean fromLauncher, long serverPlayTime) {
         this.name = name;
@@ -29,6 +30,32 @@ public class PlayerInfo {
         this.serverPlayTime = serverPlayTime;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PlayerInfo other)) return false;
+        return serverPlayTime == other.serverPlayTime && sameExceptPlayTime(other);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, uuid, skinUrl, headUrl, online, achievements, fromLauncher, serverPlayTime);
+    }
+
+    /**
+     * Совпадают ли все поля, кроме serverPlayTime. Время игры растет каждую секунду,
+     * поэтому публикатор снимков сравнивает игроков так, см. PlayerSnapshot.hasSameContentExceptPlayTime
+     */
+    public boolean sameExceptPlayTime(PlayerInfo other) {
+        return online == other.online
+                && achievements == other.achievements
+                && fromLauncher == other.fromLauncher
+                && Objects.equals(name, other.name)
+                && Objects.equals(uuid, other.uuid)
+                && Objects.equals(skinUrl, other.skinUrl)
+                && Objects.equals(headUrl, other.headUrl);
+    }
+
     public static PlayerInfo fromPlayer(ServerPlayerEntity player) {
         String playerName = player.getName().getString();
         UUID playerUuid = player.getUuid();
@@ -61,7 +88,7 @@ public class PlayerInfo {
     /**
      * Получает время на сервере в секундах
      */
-    private static long getServerPlayTime(ServerPlayerEntity player) {
+    public static long getServerPlayTime(ServerPlayerEntity player) {
         try {
             int playTimeTicks = player.getStatHandler().getStat(net.minecraft.stat.Stats.CUSTOM.getOrCreateStat(net.minecraft.stat.Stats.PLAY_TIME));
             // Конвертируем тики в секунды (20 тиков = 1 секунда)
@@ -73,28 +100,12 @@ public class PlayerInfo {
     }
     
     /**
-     * Получает количество достижений игрока (только с display, как в Discord боте)
+     * Получает количество достижений игрока (только с display, как в Discord боте).
+     * Счетчик ведется инкрементально, см. AdvancementCounter
      */
-    private static int getAchievementsCount(ServerPlayerEntity player) {
+    public static int getAchievementsCount(ServerPlayerEntity player) {
         try {
-            if (player.getAdvancementTracker() != null) {
-                var advancementTracker = player.getAdvancementTracker();
-                var server = player.getServer();
-                if (server != null) {
-                    var advancementManager = server.getAdvancementLoader();
-                    int count = 0;
-                    for (var advancement : advancementManager.getAdvancements()) {
-                        // Считаем только достижения с display (как в Discord боте)
-                        if (advancement.value().display().isPresent()) {
-                            var progress = advancementTracker.getProgress(advancement);
-                            if (progress != null && progress.isDone()) {
-                                count++;
-                            }
-                        }
-                    }
-                    return count;
-                }
-            }
+            return AdvancementCounter.getCount(player);
         } catch (Exception e) {
             LauncherApiMod.LOGGER.debug("Failed to get achievements for {}: {}", player.getName().getString(), e.getMessage());
         }
@@ -102,39 +113,14 @@ public class PlayerInfo {
     }
 
     /**
-     * Получает URL головы игрока из GameProfile (как в Discord боте)
+     * Получает URL головы игрока из GameProfile (как в Discord боте).
+     * Разбор textures кэшируется до смены скина, см. SkinTextureCache
      */
     private static String getHeadUrlFromPlayer(ServerPlayerEntity player, String playerName, String uuidString) {
         try {
-            var gameProfile = player.getGameProfile();
-            var properties = gameProfile.getProperties();
-            var textures = properties.get("textures");
-            
-            if (textures != null && !textures.isEmpty()) {
-                var textureProperty = textures.iterator().next();
-                String value = textureProperty.value();
-                
-                // Декодируем base64 texture value
-                if (value != null && !value.isEmpty()) {
-                    try {
-                        String decoded = new String(Base64.getDecoder().decode(value));
-                        JsonObject textureJson = JsonParser.parseString(decoded).getAsJsonObject();
-                        
-                        if (textureJson.has("textures")) {
-                            JsonObject texturesObj = textureJson.getAsJsonObject("textures");
-                            if (texturesObj.has("SKIN")) {
-                                JsonObject skin = texturesObj.getAsJsonObject("SKIN");
-                                if (skin.has("url")) {
-                                    String skinUrl = skin.get("url").getAsString();
-                                    // Конвертируем texture URL в head URL
-                                    return convertTextureUrlToHeadUrl(skinUrl);
-                                }
-                            }
-                        }
-                    } catch (Exception e) {
-                        LauncherApiMod.LOGGER.debug("Failed to decode texture for {}: {}", playerName, e.getMessage());
-                    }
-                }
+            SkinTexture texture = SkinTextureCache.get(player.getGameProfile());
+            if (texture != null) {
+                return texture.headUrl32;
             }
         } catch (Exception e) {
             LauncherApiMod.LOGGER.debug("Failed to get texture from GameProfile for {}: {}", playerName, e.getMessage());
@@ -143,32 +129,4 @@ public class PlayerInfo {
         // Fallback: используем UUID с mc-heads.net
         return "https://mc-heads.net/avatar/" + uuidString + "/32";
     }
-
-    /**
-     * Конвертирует texture URL в head URL
-     */
-    private static String convertTextureUrlToHeadUrl(String textureUrl) {
-        String hash = extractTextureHash(textureUrl);
-        if (hash != null) {
-            return "https://mc-heads.net/avatar/" + hash + "/32";
-        }
-        return textureUrl; // Возвращаем оригинальный URL если не можем конвертировать
-    }
-
-    /**
-     * Извлекает texture hash из Minecraft texture URL
-     */
-    private static String extractTextureHash(String textureUrl) {
-        try {
-            // URL формат: http://textures.minecraft.net/texture/{hash}
-            int lastSlash = textureUrl.lastIndexOf('/');
-            if (lastSlash != -1 && lastSlash < textureUrl.length() - 1) {
-                return textureUrl.substring(lastSlash + 1);
-            }
-        } catch (Exception e) {
-            // Игнорируем
-        }
-        return null;
-    }
 }
-
@@ -0,0 +1,62 @@
+package com.launcher.api.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Неизменяемый снимок онлайн игроков, который публикуется из тика сервера.
+ * HTTP обработчики читают только его и не трогают живое состояние игры
+ */
+public class PlayerSnapshot {
+    public static final PlayerSnapshot EMPTY = new PlayerSnapshot(0, Collections.emptyList(), 0, "unknown");
+
+    // Растет только когда содержимое снимка изменилось
+    public final long version;
+    public final List<PlayerInfo> players;
+    public final int maxPlayers;
+    public final String serverVersion;
+    private final Map<String, PlayerInfo> byName;
+
+    public PlayerSnapshot(long version, List<PlayerInfo> players, int maxPlayers, String serverVersion) {
+        this.version = version;
+        this.players = Collections.unmodifiableList(players);
+        this.maxPlayers = maxPlayers;
+        this.serverVersion = serverVersion;
+
+        Map<String, PlayerInfo> index = new HashMap<>();
+        for (PlayerInfo info : players) {
+            index.put(info.name.toLowerCase(Locale.ROOT), info);
+        }
+        this.byName = index;
+    }
+
+    /**
+     * Ищет игрока по нику без учета регистра (как PlayerManager.getPlayer)
+     */
+    public PlayerInfo getPlayer(String name) {
+        return byName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public int getOnline() {
+        return players.size();
+    }
+
+    /**
+     * Совпадает ли содержимое снимка с новыми данными без учета времени игры (см. PlayerInfo.sameExceptPlayTime).
+     * Нужно только публикатору снимков, чтобы версия не менялась каждую секунду
+     */
+    public boolean hasSameContentExceptPlayTime(List<PlayerInfo> otherPlayers, int otherMaxPlayers, String otherServerVersion) {
+        if (maxPlayers != otherMaxPlayers || !serverVersion.equals(otherServerVersion) || players.size() != otherPlayers.size()) {
+            return false;
+        }
+        for (int i = 0; i < players.size(); i++) {
+            if (!players.get(i).sameExceptPlayTime(otherPlayers.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,75 @@
+package com.launcher.api;
+
+import net.minecraft.server.network.ServerPlayNetworkHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Вход игрока только ставит проверку лаунчера в очередь, сама проверка идет на тике, когда подошел ее срок
+ */
+class PlayerJoinHandlerTest {
+    private static final int JOIN_TICK = 100;
+    private static final int DUE_TICK = JOIN_TICK + PlayerJoinHandler.REFLECTION_CHECK_DELAY_TICKS;
+    // Тик, на котором любые оставшиеся от других тестов проверки уже выполнены
+    private static final int DRAIN_TICK = 1_000_000;
+
+    private final AtomicInteger checks = new AtomicInteger();
+    private Consumer<ServerPlayNetworkHandler> realCheck;
+
+    @BeforeEach
+    void recordChecks() {
+        realCheck = PlayerJoinHandler.launcherCheck;
+        PlayerJoinHandler.launcherCheck = handler -> { };
+        PlayerJoinHandler.runDueChecks(DRAIN_TICK);
+        PlayerJoinHandler.launcherCheck = handler -> checks.incrementAndGet();
+    }
+
+    @AfterEach
+    void restoreCheck() {
+        PlayerJoinHandler.runDueChecks(DRAIN_TICK);
+        PlayerJoinHandler.launcherCheck = realCheck;
+    }
+
+    @Test
+    void joinOnlyEnqueuesTheCheck() {
+        PlayerJoinHandler.onJoin(UUID.randomUUID(), null, JOIN_TICK);
+
+        assertEquals(0, checks.get());
+        assertEquals(1, PlayerJoinHandler.pendingCheckCount());
+    }
+
+    @Test
+    void checkRunsExactlyOnItsDueTick() {
+        PlayerJoinHandler.onJoin(UUID.randomUUID(), null, JOIN_TICK);
+
+        for (int tick = JOIN_TICK; tick < DUE_TICK; tick++) {
+            PlayerJoinHandler.runDueChecks(tick);
+            assertEquals(0, checks.get(), "check ran early on tick " + tick);
+        }
+        PlayerJoinHandler.runDueChecks(DUE_TICK);
+        assertEquals(1, checks.get());
+        assertEquals(0, PlayerJoinHandler.pendingCheckCount());
+
+        PlayerJoinHandler.runDueChecks(DUE_TICK + 1);
+        assertEquals(1, checks.get());
+    }
+
+    @Test
+    void manyJoinsOnOneTickAreCheckedTogetherLater() {
+        for (int i = 0; i < 100; i++) {
+            PlayerJoinHandler.onJoin(UUID.randomUUID(), null, JOIN_TICK);
+        }
+
+        assertEquals(0, checks.get());
+        assertEquals(100, PlayerJoinHandler.pendingCheckCount());
+        PlayerJoinHandler.runDueChecks(DUE_TICK);
+        assertEquals(100, checks.get());
+    }
+}
@@ -0,0 +1,57 @@
+package com.launcher.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Задачи выполняются ровно на своем тике и в порядке постановки
+ */
+class TickDelayQueueTest {
+    private static final int DELAY_TICKS = 40;
+
+    @Test
+    void scheduleOnlyEnqueues() {
+        TickDelayQueue<String> queue = new TickDelayQueue<>(DELAY_TICKS);
+        List<String> checked = new ArrayList<>();
+
+        queue.schedule("Steve", 100);
+
+        assertEquals(1, queue.size());
+        // Тот же тик, что и постановка: задача еще не запускалась
+        assertEquals(0, queue.runDue(100, checked::add));
+        assertTrue(checked.isEmpty());
+    }
+
+    @Test
+    void itemRunsOnItsDueTick() {
+        TickDelayQueue<String> queue = new TickDelayQueue<>(DELAY_TICKS);
+        List<String> checked = new ArrayList<>();
+        queue.schedule("Steve", 100);
+
+        for (int tick = 100; tick < 100 + DELAY_TICKS; tick++) {
+            assertEquals(0, queue.runDue(tick, checked::add), "ran early on tick " + tick);
+        }
+        assertEquals(1, queue.runDue(100 + DELAY_TICKS, checked::add));
+        assertEquals(List.of("Steve"), checked);
+        assertEquals(0, queue.runDue(200, checked::add));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void itemsKeepTheirOrderAcrossTicks() {
+        TickDelayQueue<String> queue = new TickDelayQueue<>(DELAY_TICKS);
+        List<String> checked = new ArrayList<>();
+        queue.schedule("first", 10);
+        queue.schedule("second", 11);
+        queue.schedule("third", 11);
+
+        assertEquals(1, queue.runDue(10 + DELAY_TICKS, checked::add));
+        assertEquals(2, queue.runDue(11 + DELAY_TICKS, checked::add));
+        assertEquals(List.of("first", "second", "third"), checked);
+    }
+}
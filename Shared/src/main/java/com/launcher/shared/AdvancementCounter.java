@@ -0,0 +1,93 @@
+package com.launcher.shared;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.minecraft.advancement.AdvancementEntry;
+import net.minecraft.advancement.AdvancementProgress;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.Identifier;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Число выполненных видимых достижений (с display) у каждого онлайн игрока.
+ * Полный обход достижений делается один раз при входе, дальше набор обновляется
+ * из миксинов PlayerAdvancementTracker, поэтому getCount стоит O(1).
+ *
+ * Класс общий для ServerMods и DiscordMinecraft. Оба мода могут сообщить об одном
+ * и том же достижении, поэтому храним набор id, а не счетчик - повторное обновление ничего не меняет
+ */
+public final class AdvancementCounter {
+    private static final Map<UUID, Set<Identifier>> completed = new ConcurrentHashMap<>();
+    private static final AtomicBoolean registered = new AtomicBoolean(false);
+
+    private AdvancementCounter() {
+    }
+
+    /**
+     * Подписывается на события сервера. Безопасно вызывать из каждого мода
+     */
+    public static void register() {
+        if (!registered.compareAndSet(false, true)) {
+            return;
+        }
+        ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> seed(handler.player));
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> completed.remove(handler.player.getUuid()));
+        // После /reload набор достижений мог измениться - пересчитаем при следующем чтении
+        ServerLifecycleEvents.END_DATA_PACK_RELOAD.register((server, resourceManager, success) -> completed.clear());
+    }
+
+    /**
+     * Вызывается из миксина после grantCriterion/revokeCriterion, если прогресс изменился
+     */
+    public static void onProgressChanged(ServerPlayerEntity player, AdvancementEntry advancement, AdvancementProgress progress) {
+        if (advancement.value().display().isEmpty()) {
+            return;
+        }
+        Set<Identifier> done = completed.get(player.getUuid());
+        if (done == null) {
+            return; // игрок еще не посчитан - посчитаем при первом чтении
+        }
+        if (progress.isDone()) {
+            done.add(advancement.id());
+        } else {
+            done.remove(advancement.id());
+        }
+    }
+
+    public static int getCount(ServerPlayerEntity player) {
+        Set<Identifier> done = completed.get(player.getUuid());
+        if (done == null) {
+            // Вышедшего игрока не запоминаем, иначе запись останется после DISCONNECT
+            done = player.isDisconnected() ? scan(player) : seed(player);
+        }
+        return done.size();
+    }
+
+    private static Set<Identifier> seed(ServerPlayerEntity player) {
+        return completed.computeIfAbsent(player.getUuid(), uuid -> scan(player));
+    }
+
+    private static Set<Identifier> scan(ServerPlayerEntity player) {
+        Set<Identifier> done = ConcurrentHashMap.newKeySet();
+        MinecraftServer server = player.getServer();
+        if (server == null || player.getAdvancementTracker() == null) {
+            return done;
+        }
+        var advancementTracker = player.getAdvancementTracker();
+        for (AdvancementEntry advancement : server.getAdvancementLoader().getAdvancements()) {
+            if (advancement.value().display().isPresent()) {
+                AdvancementProgress progress = advancementTracker.getProgress(advancement);
+                if (progress != null && progress.isDone()) {
+                    done.add(advancement.id());
+                }
+            }
+        }
+        return done;
+    }
+}
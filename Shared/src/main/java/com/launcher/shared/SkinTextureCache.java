@@ -0,0 +1,136 @@
+package com.launcher.shared;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mojang.authlib.GameProfile;
+import com.mojang.authlib.properties.Property;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Разобранное свойство textures из GameProfile. Base64 и JSON разбираются
+ * один раз на значение свойства: пока скин игрока не поменялся (например, через SkinRestorer),
+ * повторные запросы отдают готовый результат.
+ *
+ * Класс общий для ServerMods и DiscordMinecraft
+ */
+public final class SkinTextureCache {
+    private static final String HEAD_API = "https://mc-heads.net/avatar/";
+    // Нет свойства textures или его не удалось разобрать
+    private static final SkinTexture NONE = new SkinTexture(null, null);
+
+    private static final Map<UUID, Entry> byPlayer = new ConcurrentHashMap<>();
+    private static final AtomicBoolean registered = new AtomicBoolean(false);
+
+    private SkinTextureCache() {
+    }
+
+    /**
+     * Подписывается на выход игроков, чтобы не держать их записи. Безопасно вызывать из каждого мода
+     */
+    public static void register() {
+        if (!registered.compareAndSet(false, true)) {
+            return;
+        }
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> byPlayer.remove(handler.player.getUuid()));
+    }
+
+    /**
+     * Возвращает разобранный скин игрока или null, если в профиле нет textures
+     */
+    public static SkinTexture get(GameProfile profile) {
+        String value = texturesValue(profile);
+        if (value == null) {
+            return null;
+        }
+        Entry entry = byPlayer.get(profile.getId());
+        if (entry == null || !entry.value.equals(value)) {
+            // Профиль новый или скин сменился - разбираем заново
+            entry = new Entry(value, parse(value));
+            byPlayer.put(profile.getId(), entry);
+        }
+        return entry.texture == NONE ? null : entry.texture;
+    }
+
+    public static void invalidate(UUID uuid) {
+        byPlayer.remove(uuid);
+    }
+
+    private static String texturesValue(GameProfile profile) {
+        if (profile == null || profile.getId() == null) {
+            return null;
+        }
+        Iterator<Property> textures = profile.getProperties().get("textures").iterator();
+        if (!textures.hasNext()) {
+            return null;
+        }
+        String value = textures.next().value();
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static SkinTexture parse(String value) {
+        try {
+            String decoded = new String(Base64.getDecoder().decode(value), StandardCharsets.UTF_8);
+            JsonObject textureJson = JsonParser.parseString(decoded).getAsJsonObject();
+            if (textureJson.has("textures")) {
+                JsonObject texturesObj = textureJson.getAsJsonObject("textures");
+                if (texturesObj.has("SKIN")) {
+                    JsonObject skin = texturesObj.getAsJsonObject("SKIN");
+                    if (skin.has("url")) {
+                        String skinUrl = skin.get("url").getAsString();
+                        return new SkinTexture(skinUrl, extractTextureHash(skinUrl));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // Битое свойство - запоминаем, чтобы не разбирать его на каждом запросе
+        }
+        return NONE;
+    }
+
+    /**
+     * Извлекает texture hash из URL вида http://textures.minecraft.net/texture/{hash}
+     */
+    private static String extractTextureHash(String textureUrl) {
+        int lastSlash = textureUrl.lastIndexOf('/');
+        if (lastSlash != -1 && lastSlash < textureUrl.length() - 1) {
+            return textureUrl.substring(lastSlash + 1);
+        }
+        return null;
+    }
+
+    private static final class Entry {
+        final String value;
+        final SkinTexture texture;
+
+        Entry(String value, SkinTexture texture) {
+            this.value = value;
+            this.texture = texture;
+        }
+    }
+
+    /**
+     * Скин игрока и готовые URL головы в размерах, которые используют моды
+     */
+    public static final class SkinTexture {
+        public final String skinUrl;
+        public final String textureHash; // null, если URL скина нестандартный
+        public final String headUrl32;
+        public final String headUrl128;
+
+        SkinTexture(String skinUrl, String textureHash) {
+            this.skinUrl = skinUrl;
+            this.textureHash = textureHash;
+            // Без hash отдаем исходный URL, как раньше делали оба мода
+            this.headUrl32 = textureHash != null ? HEAD_API + textureHash + "/32" : skinUrl;
+            this.headUrl128 = textureHash != null ? HEAD_API + textureHash + "/128" : skinUrl;
+        }
+    }
+}
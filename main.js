@@ -69,6 +69,10 @@ const SERVER_PORT = 30081;
 const SERVER_QUERY_PORT = 30081;
 const API_PORT = 30761; // Порт HTTP API мода
 const API_URL = `http://${SERVER_IP}:${API_PORT}`;
+// Переиспользуем одно TCP соединение с HTTP API между опросами (keep-alive)
+const apiAgent = new http.Agent({ keepAlive: true, maxSockets: 1 });
+// Последний ответ /api/players и его ETag: при 304 Not Modified используем его повторно
+let apiPlayersCache = { etag: null, data: null };
 
 let mainWindow;
 let currentGameProcess = null; // Текущий процесс игры
@@ -1838,6 +1842,8 @@ ipcMain.handle('get-online-players', async (event) => {
             port: url.port || 30761,
             path: url.pathname,
             method: 'GET',
+            agent: apiAgent,
+            headers: apiPlayersCache.etag ? { 'If-None-Match': apiPlayersCache.etag } : {},
             timeout: 5000
         };
         
@@ -1858,6 +1864,11 @@ ipcMain.handle('get-online-players', async (event) => {
             
             res.on('end', async () => {
                 try {
+                    if (res.statusCode === 304 && apiPlayersCache.data !== null) {
+                        data = apiPlayersCache.data;
+                    } else if (res.statusCode === 200 && res.headers.etag) {
+                        apiPlayersCache = { etag: res.headers.etag, data };
+                    }
                     console.log('[Main] API Raw response length:', data.length);
                     const response = JSON.parse(data);
                     console.log('[Main] API Response parsed:', JSON.stringify(response).substring(0, 300));